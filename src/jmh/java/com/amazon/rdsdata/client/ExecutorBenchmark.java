@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+// Batches whose parameters are read from objects by FieldMapper, sent to a stubbed RDS Data API client
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExecutorBenchmark {
+    private static final String SQL = "INSERT INTO orders (id, customer, amount, paid, created) "
+            + "VALUES (:id, :customer, :amount, :paid, :created)";
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private RdsData client;
+    private List<Object> paramSets;
+
+    @Setup
+    public void setUp() {
+        client = RdsData.builder()
+                .sdkClient(new StubRdsDataClient(SyntheticResults.response(0, 0)))
+                .database("benchmark")
+                .resourceArn("arn:resource")
+                .secretArn("arn:secret")
+                .build();
+        paramSets = IntStream.range(0, batchSize)
+                .mapToObj(i -> new Order(i, "customer-" + i, i * 1.5, i % 2 == 0, LocalDate.of(2020, 1, 1).plusDays(i)))
+                .collect(toList());
+    }
+
+    @Benchmark
+    public ExecutionResult executeBatch() {
+        return client.forSql(SQL)
+                .withParamSets(paramSets)
+                .execute();
+    }
+
+    @Value
+    static class Order {
+        long id;
+        String customer;
+        double amount;
+        boolean paid;
+        LocalDate created;
+    }
+}
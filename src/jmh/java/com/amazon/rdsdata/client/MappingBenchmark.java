@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Maps a prepared result set; object writers are created on the first invocation and reused afterwards, as they are
+// for results of statements whose metadata is cached
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MappingBenchmark {
+    public enum Writer {
+        CONSTRUCTOR,
+        SETTER,
+        FIELD
+    }
+
+    @Param({"1", "100", "1000"})
+    public int rows;
+
+    @Param({"4", "16"})
+    public int columns;
+
+    @Param
+    public Writer writer;
+
+    private ExecutionResult result;
+    private Class<?> targetClass;
+
+    @Setup
+    public void setUp() {
+        result = new ExecutionResult(SyntheticResults.columnMetadata(columns),
+                SyntheticResults.records(rows, columns),
+                0L,
+                MappingOptions.DEFAULT);
+        targetClass = targetClass(writer, columns);
+    }
+
+    @Benchmark
+    public List<?> mapToList() {
+        return result.mapToList(targetClass);
+    }
+
+    private static Class<?> targetClass(Writer writer, int columns) {
+        switch (writer) {
+            case CONSTRUCTOR:
+                return columns == 4 ? NarrowConstructorRow.class : WideConstructorRow.class;
+            case SETTER:
+                return SetterRow.class;
+            default:
+                return FieldRow.class;
+        }
+    }
+
+    @AllArgsConstructor
+    static class NarrowConstructorRow {
+        private final long c0;
+        private final String c1;
+        private final double c2;
+        private final boolean c3;
+    }
+
+    @AllArgsConstructor
+    static class WideConstructorRow {
+        private final long c0;
+        private final String c1;
+        private final double c2;
+        private final boolean c3;
+        private final long c4;
+        private final String c5;
+        private final double c6;
+        private final boolean c7;
+        private final long c8;
+        private final String c9;
+        private final double c10;
+        private final boolean c11;
+        private final long c12;
+        private final String c13;
+        private final double c14;
+        private final boolean c15;
+    }
+
+    @NoArgsConstructor
+    @Setter
+    static class SetterRow {
+        private long c0;
+        private String c1;
+        private double c2;
+        private boolean c3;
+        private long c4;
+        private String c5;
+        private double c6;
+        private boolean c7;
+        private long c8;
+        private String c9;
+        private double c10;
+        private boolean c11;
+        private long c12;
+        private String c13;
+        private double c14;
+        private boolean c15;
+    }
+
+    @NoArgsConstructor
+    static class FieldRow {
+        public long c0;
+        public String c1;
+        public double c2;
+        public boolean c3;
+        public long c4;
+        public String c5;
+        public double c6;
+        public boolean c7;
+        public long c8;
+        public String c9;
+        public double c10;
+        public boolean c11;
+        public long c12;
+        public String c13;
+        public double c14;
+        public boolean c15;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlaceholderBenchmark {
+    @Param({"10", "100"})
+    public int placeholders;
+
+    private String positionalSql;
+    private Object[] parameters;
+    private String namedSql;
+
+    @Setup
+    public void setUp() {
+        positionalSql = insertSql(column -> "?");
+        namedSql = insertSql(column -> ":c" + column);
+        parameters = IntStream.range(0, placeholders).boxed().toArray();
+    }
+
+    @Benchmark
+    public PlaceholderUtils.PlaceholderConvertResult convertToNamed() {
+        return PlaceholderUtils.convertToNamed(positionalSql, parameters);
+    }
+
+    @Benchmark
+    public Set<String> findAll() {
+        return PlaceholderUtils.findAll(namedSql);
+    }
+
+    private String insertSql(IntFunction<String> placeholder) {
+        return "INSERT INTO measurements ("
+                + IntStream.range(0, placeholders).mapToObj(column -> "c" + column).collect(joining(", "))
+                + ") VALUES ("
+                + IntStream.range(0, placeholders).mapToObj(placeholder).collect(joining(", "))
+                + ") ON CONFLICT (c0) DO NOTHING";
+    }
+}
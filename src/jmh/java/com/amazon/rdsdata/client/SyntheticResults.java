@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.experimental.UtilityClass;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+// Result sets with columns c0, c1, ... of type long, string, double and boolean, repeating in that order
+@UtilityClass
+class SyntheticResults {
+    static ExecuteStatementResponse response(int rows, int columns) {
+        return ExecuteStatementResponse.builder()
+                .columnMetadata(columnMetadata(columns))
+                .records(records(rows, columns))
+                .numberOfRecordsUpdated(0L)
+                .build();
+    }
+
+    static List<ColumnMetadata> columnMetadata(int columns) {
+        return IntStream.range(0, columns)
+                .mapToObj(column -> ColumnMetadata.builder().name("c" + column).build())
+                .collect(toList());
+    }
+
+    static List<List<Field>> records(int rows, int columns) {
+        return IntStream.range(0, rows)
+                .mapToObj(row -> IntStream.range(0, columns)
+                        .mapToObj(column -> field(row, column))
+                        .collect(toList()))
+                .collect(toList());
+    }
+
+    private static Field field(int row, int column) {
+        switch (column % 4) {
+            case 0:
+                return Field.builder().longValue((long) row * column).build();
+            case 1:
+                return Field.builder().stringValue("value-" + row + "-" + column).build();
+            case 2:
+                return Field.builder().doubleValue(row * 1.5).build();
+            default:
+                return Field.builder().booleanValue(row % 2 == 0).build();
+        }
+    }
+}
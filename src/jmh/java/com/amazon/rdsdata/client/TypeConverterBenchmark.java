@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TypeConverterBenchmark {
+    public enum ValueType {
+        LONG(Long.class, 1234567L),
+        STRING(String.class, "alice@example.com"),
+        DOUBLE(Double.class, 3.14159),
+        BOOLEAN(Boolean.class, true),
+        BYTES(byte[].class, new byte[64]),
+        BIG_DECIMAL(BigDecimal.class, new BigDecimal("1234567.89")),
+        LOCAL_DATE(LocalDate.class, LocalDate.of(2020, 2, 29)),
+        LOCAL_DATE_TIME(LocalDateTime.class, LocalDateTime.of(2020, 2, 29, 12, 30, 15)),
+        UUID(java.util.UUID.class, java.util.UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+
+        private final Class<?> type;
+        private final Object value;
+
+        ValueType(Class<?> type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    @Param
+    public ValueType valueType;
+
+    private Field field;
+
+    @Setup
+    public void setUp() {
+        field = TypeConverter.toField(valueType.value);
+    }
+
+    @Benchmark
+    public Field toField() {
+        return TypeConverter.toField(valueType.value);
+    }
+
+    @Benchmark
+    public Object fromField() {
+        return TypeConverter.fromField(field, valueType.type);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exponential backoff with "full jitter": a random delay between zero and an exponentially growing cap
+ */
+class Backoff {
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    Backoff(Duration baseDelay, Duration maxDelay) {
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    long delayNanos(int retry) {
+        val exponentialDelay = baseDelayNanos << Math.min(retry - 1, 30);
+        val cap = exponentialDelay < 0 ? maxDelayNanos : Math.min(maxDelayNanos, exponentialDelay);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    static void sleep(long nanos, String waitDescription) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder()
+                    .message("Interrupted while waiting " + waitDescription)
+                    .cause(e)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.val;
+
+@Name("com.amazon.rdsdata.Batch")
+@Label("Batch Execution")
+@Description("A call to BatchExecuteStatement, including retries")
+@Category("RDS Data API")
+@StackTrace(false)
+class BatchEvent extends Event implements DataApiEvent {
+    @Label("SQL Fingerprint")
+    String sqlFingerprint;
+
+    @Label("Parameter Sets")
+    int parameterSets;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestSize;
+
+    @Label("Error")
+    String error;
+
+    static BatchEvent start() {
+        val event = new BatchEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void finish(CallMetrics metrics) {
+        end();
+        if (shouldCommit()) {
+            sqlFingerprint = StatementUtils.fingerprint(metrics.getSql());
+            parameterSets = metrics.getParameterSetCount();
+            requestSize = metrics.getRequestBytes();
+            error = metrics.getErrorType();
+            commit();
+        }
+    }
+}
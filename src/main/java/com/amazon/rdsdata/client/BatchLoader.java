@@ -0,0 +1,288 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects keys requested within a short window and loads them with one <code>IN</code> query instead of one query
+ * per key.
+ *
+ * The SQL statement must contain the <code>:keys</code> placeholder inside an <code>IN</code> list, for example
+ * <code>SELECT * FROM users WHERE id IN (:keys)</code>. The number of keys sent in one query is always one of the
+ * bucket sizes; the last key is repeated to fill the bucket, so the database sees only a few statement shapes.
+ *
+ * Loaded values, and values that are still loading, are cached until {@link #clear()} is called, so the same key is
+ * never loaded twice. A loader is meant to live as long as one unit of work, for example one incoming request.
+ */
+@RequiredArgsConstructor
+public class BatchLoader<K, T> {
+    static final String KEYS = "keys";
+    // a whole word, so that placeholders such as :keyset are left alone
+    static final Pattern REGEX_KEYS = Pattern.compile(":" + KEYS + "\\b");
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-batch-loader-scheduler")
+                    .build());
+    private static final ExecutorService DEFAULT_EXECUTOR_SERVICE = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-batch-loader-%d")
+                    .build());
+
+    private final RdsData rdsData;
+    private final String sql;
+    private final String keyColumn;
+    private final Class<K> keyType;
+    private final Class<T> resultType;
+    // set by the with* methods and read by the threads that dispatch and load keys
+    private volatile int[] bucketSizes = { 1, 4, 16, 64, 256 };
+    private volatile Duration maxDelay = Duration.ofMillis(1);
+    private volatile ExecutorService executorService = DEFAULT_EXECUTOR_SERVICE;
+
+    private final Map<K, CompletableFuture<T>> cache = new ConcurrentHashMap<>();
+    private Map<K, CompletableFuture<T>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledDispatch;
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder queryCount = new LongAdder();
+
+    /**
+     * Sets the allowed numbers of keys in one query. Batches are padded to the next bucket size, and larger batches
+     * are split into queries of the largest bucket size
+     * @param bucketSizes bucket sizes
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public BatchLoader<K, T> withBucketSizes(int... bucketSizes) {
+        checkArgument(bucketSizes.length > 0, "At least one bucket size must be specified");
+        val sorted = Arrays.copyOf(bucketSizes, bucketSizes.length);
+        Arrays.sort(sorted);
+        checkArgument(sorted[0] > 0, "Bucket sizes must be positive");
+        this.bucketSizes = sorted;
+        return this;
+    }
+
+    /**
+     * Sets how long the loader waits for more keys after the first one was requested
+     * @param maxDelay maximum delay
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public BatchLoader<K, T> withMaxDelay(Duration maxDelay) {
+        checkArgument(!maxDelay.isNegative(), "Delay must not be negative");
+        this.maxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Sets the executor service that runs the queries
+     * @param executorService executor service
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public BatchLoader<K, T> withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Requests the row with the given key. If more than one row has the key, the first one is returned
+     * @param key key value
+     * @return a future completed with the mapped row, or with <code>null</code> if there is no row with the key
+     */
+    public CompletableFuture<T> load(K key) {
+        checkNotNull(key, "Key must not be null");
+        loadCount.increment();
+
+        val cached = cache.get(key);
+        if (cached != null) {
+            cacheHitCount.increment();
+            return cached;
+        }
+
+        synchronized (this) {
+            val existing = cache.get(key);
+            if (existing != null) {
+                cacheHitCount.increment();
+                return existing;
+            }
+
+            val future = new CompletableFuture<T>();
+            cache.put(key, future);
+            pending.put(key, future);
+            if (pending.size() >= largestBucketSize()) {
+                dispatch();
+            } else if (scheduledDispatch == null) {
+                scheduledDispatch = SCHEDULER.schedule(this::dispatch, maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Requests the rows with the given keys
+     * @param keys key values
+     * @return a future completed with a map from every key to its mapped row, or to <code>null</code>
+     */
+    public CompletableFuture<Map<K, T>> loadAll(List<K> keys) {
+        val futures = new LinkedHashMap<K, CompletableFuture<T>>();
+        keys.forEach(key -> futures.put(key, load(key)));
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    val result = new LinkedHashMap<K, T>();
+                    futures.forEach((key, future) -> result.put(key, future.join()));
+                    return result;
+                });
+    }
+
+    /**
+     * Sends the keys collected so far without waiting for the delay to pass
+     */
+    public synchronized void dispatch() {
+        if (scheduledDispatch != null) {
+            scheduledDispatch.cancel(false);
+            scheduledDispatch = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        val keys = new ArrayList<K>(pending.keySet());
+        val futures = pending;
+        pending = new LinkedHashMap<>();
+
+        val maxBucketSize = largestBucketSize();
+        for (int from = 0; from < keys.size(); from += maxBucketSize) {
+            val chunk = keys.subList(from, Math.min(keys.size(), from + maxBucketSize));
+            executorService.execute(() -> loadChunk(chunk, futures));
+        }
+    }
+
+    /**
+     * Removes all loaded values from the cache
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return the number of requested keys
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * @return the number of requested keys that were already loaded or loading
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.sum();
+    }
+
+    /**
+     * @return the number of queries sent
+     */
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    private void loadChunk(List<K> requestedKeys, Map<K, CompletableFuture<T>> futures) {
+        // keys whose futures were cancelled are not loaded
+        val keys = new ArrayList<K>(requestedKeys.size());
+        for (val key : requestedKeys) {
+            if (futures.get(key).isCancelled()) {
+                cache.remove(key, futures.get(key));
+            } else {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try {
+            val bucketSize = bucketSize(keys.size());
+            val params = new HashMap<String, Object>();
+            for (int i = 0; i < bucketSize; i++) {
+                params.put(KEYS + i, keys.get(Math.min(i, keys.size() - 1)));
+            }
+
+            queryCount.increment();
+            val result = rdsData.forSql(sqlForBucket(bucketSize))
+                    .withParameter(params)
+                    .execute();
+            val rowKeys = result.getColumnValues(keyColumn, keyType);
+            val rows = result.mapToList(resultType);
+            val rowsByKey = new HashMap<K, T>();
+            for (int i = 0; i < rows.size(); i++) {
+                rowsByKey.putIfAbsent(rowKeys.get(i), rows.get(i));
+            }
+
+            keys.forEach(key -> futures.get(key).complete(rowsByKey.get(key)));
+        } catch (RuntimeException | Error e) {
+            keys.forEach(key -> {
+                val future = futures.get(key);
+                cache.remove(key, future); // let the next request try again
+                future.completeExceptionally(e);
+            });
+        }
+    }
+
+    private int largestBucketSize() {
+        val sizes = bucketSizes;
+        return sizes[sizes.length - 1];
+    }
+
+    private int bucketSize(int numberOfKeys) {
+        for (val bucketSize : bucketSizes) {
+            if (bucketSize >= numberOfKeys) {
+                return bucketSize;
+            }
+        }
+        return largestBucketSize();
+    }
+
+    private String sqlForBucket(int bucketSize) {
+        val placeholders = new StringBuilder();
+        for (int i = 0; i < bucketSize; i++) {
+            placeholders.append(i == 0 ? "" : ", ").append(':').append(KEYS).append(i);
+        }
+        return REGEX_KEYS.matcher(sql).replaceAll(Matcher.quoteReplacement(placeholders.toString()));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.BatchExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.util.List;
+
+/**
+ * Measurements of a single call to RDS Data API, passed to {@link MetricsListener#onCall(CallMetrics)}.
+ *
+ * Request and response sizes are estimated from the SQL, the parameters and the returned fields rather than taken
+ * from the serialized HTTP payloads.
+ */
+@Value
+@Builder(access = AccessLevel.PACKAGE)
+public class CallMetrics {
+    private static final int FIELD_OVERHEAD_BYTES = 16;
+
+    public enum Operation {
+        BEGIN_TRANSACTION,
+        COMMIT_TRANSACTION,
+        ROLLBACK_TRANSACTION,
+        EXECUTE_STATEMENT,
+        BATCH_EXECUTE_STATEMENT
+    }
+
+    Operation operation;
+    String sql; // null for transaction calls
+    long durationNanos;
+    long requestBytes;
+    long responseBytes;
+    int rowCount;
+    int columnCount;
+    int parameterSetCount;
+    Throwable error; // null if the call succeeded
+
+    /**
+     * @return the simple class name of the error, or null if the call succeeded
+     */
+    public String getErrorType() {
+        return error == null ? null : error.getClass().getSimpleName();
+    }
+
+    static CallMetrics of(Operation operation,
+                          String sql,
+                          List<List<SqlParameter>> parameterSets,
+                          Object response,
+                          Throwable error,
+                          long durationNanos) {
+        val builder = builder()
+                .operation(operation)
+                .sql(sql)
+                .durationNanos(durationNanos)
+                .requestBytes(estimateRequestBytes(sql, parameterSets))
+                .parameterSetCount(parameterSets.size())
+                .error(error);
+
+        if (response instanceof ExecuteStatementResponse) {
+            val records = ((ExecuteStatementResponse) response).records();
+            val columnMetadata = ((ExecuteStatementResponse) response).columnMetadata();
+            if (records != null) {
+                builder.rowCount(records.size())
+                        .responseBytes(estimateRecordBytes(records));
+            }
+            if (columnMetadata != null && !columnMetadata.isEmpty()) {
+                builder.columnCount(columnMetadata.size());
+            } else if (records != null && !records.isEmpty()) {
+                builder.columnCount(records.get(0).size());
+            }
+        } else if (response instanceof BatchExecuteStatementResponse) {
+            val updateResults = ((BatchExecuteStatementResponse) response).updateResults();
+            if (updateResults != null) {
+                builder.rowCount(updateResults.size())
+                        .responseBytes((long) updateResults.size() * FIELD_OVERHEAD_BYTES);
+            }
+        }
+        return builder.build();
+    }
+
+    private static long estimateRequestBytes(String sql, List<List<SqlParameter>> parameterSets) {
+        long size = sql == null ? 0 : sql.length();
+        for (val parameters : parameterSets) {
+            for (val parameter : parameters) {
+                size += FIELD_OVERHEAD_BYTES + length(parameter.name()) + length(parameter.typeHintAsString())
+                        + estimateFieldBytes(parameter.value());
+            }
+        }
+        return size;
+    }
+
+    private static long estimateRecordBytes(List<List<Field>> records) {
+        long size = 0;
+        for (val record : records) {
+            for (val field : record) {
+                size += FIELD_OVERHEAD_BYTES + estimateFieldBytes(field);
+            }
+        }
+        return size;
+    }
+
+    private static long estimateFieldBytes(Field field) {
+        if (field == null) {
+            return 0;
+        }
+        if (field.stringValue() != null) {
+            return field.stringValue().length();
+        }
+        if (field.blobValue() != null) {
+            return field.blobValue().asByteBuffer().remaining();
+        }
+        if (field.longValue() != null || field.doubleValue() != null) {
+            return Long.BYTES;
+        }
+        return 1;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.val;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits the number of in-flight RDS Data API requests. The limit is adjusted with AIMD (additive increase,
+ * multiplicative decrease): it grows by one for every successful request while the limiter is saturated, and it is
+ * multiplied by the backoff ratio whenever a request is throttled, times out or is slower than the latency threshold.
+ *
+ * Callers that exceed the limit are queued in arrival order for up to the queue timeout, after which a
+ * {@link ConcurrencyLimitExceededException} is thrown. With a zero queue timeout callers fail fast.
+ *
+ * When a {@link RequestScheduler} is configured as well, the scheduler takes the permits itself and its priority
+ * queues are the only place where callers wait, so the queue timeout of the limiter does not apply to them.
+ */
+public class ConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final long queueTimeoutNanos;
+
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long rejectedCount;
+
+    @Builder
+    private ConcurrencyLimiter(int initialLimit,
+                               int minLimit,
+                               int maxLimit,
+                               double backoffRatio,
+                               Duration latencyThreshold,
+                               Duration queueTimeout) {
+        checkArgument(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+        checkArgument(0 < backoffRatio && backoffRatio < 1, "Backoff ratio must be between 0 and 1");
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold == null ? Long.MAX_VALUE : latencyThreshold.toNanos();
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    public static class ConcurrencyLimiterBuilder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private double backoffRatio = 0.9;
+        private Duration queueTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * @return the current number of permitted in-flight requests
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of requests that are currently in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of callers waiting for a permit
+     */
+    public synchronized int getQueueLength() {
+        return waiters.size();
+    }
+
+    /**
+     * @return the number of callers rejected since the limiter was created
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    <T> T call(Deadline deadline, Supplier<T> sdkCall) {
+        acquire(deadline);
+        return callWithPermit(sdkCall);
+    }
+
+    // used by RequestScheduler, which queues callers itself and takes a permit only when one is free
+    synchronized boolean tryAcquire() {
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    // returns a permit taken with tryAcquire() that was never used for a call
+    synchronized void releaseUnused() {
+        releasePermit();
+    }
+
+    <T> T callWithPermit(Supplier<T> sdkCall) {
+        val startTime = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return sdkCall.get();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            // the permit is returned whatever was thrown, or the limit would shrink for good
+            release(failure, System.nanoTime() - startTime);
+        }
+    }
+
+    private synchronized void acquire(Deadline deadline) {
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return;
+        }
+
+        val waiter = new Waiter();
+        waiters.add(waiter);
+        val queueDeadline = System.nanoTime() + queueTimeoutNanos;
+        val limitedByDeadline = deadline != null && deadline.getNanoTime() - queueDeadline < 0;
+        val waitDeadline = limitedByDeadline ? deadline.getNanoTime() : queueDeadline;
+        try {
+            while (!waiter.granted) {
+                val remaining = waitDeadline - System.nanoTime();
+                if (remaining <= 0) {
+                    waiters.remove(waiter);
+                    rejectedCount++;
+                    if (limitedByDeadline) {
+                        throw new DeadlineExceededException();
+                    }
+                    throw new ConcurrencyLimitExceededException((int) limit);
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                releasePermit();
+            } else {
+                waiters.remove(waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder()
+                    .message("Interrupted while waiting for a concurrency limit permit")
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    private synchronized void release(Throwable failure, long latencyNanos) {
+        if (failure != null) {
+            onFailure(failure);
+        } else {
+            onSuccess(latencyNanos);
+        }
+        releasePermit();
+    }
+
+    private void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            decreaseLimit();
+        } else if (inFlight * 2 >= limit) {
+            // only grow while the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    private void onFailure(Throwable e) {
+        if (SdkErrors.isOverload(e)) {
+            decreaseLimit();
+        }
+    }
+
+    private void decreaseLimit() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void releasePermit() {
+        inFlight--;
+        boolean granted = false;
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+            waiters.poll().granted = true;
+            inFlight++;
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private static class Waiter {
+        private boolean granted = false;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+// A Flight Recorder event of an RDS Data API call; only used when JfrSupport.AVAILABLE is true.
+// The event classes extend jdk.jfr.Event directly, as Flight Recorder fails to instrument subclasses that are loaded
+// while their event superclass is being verified
+interface DataApiEvent {
+    // returns a started event, or null if the event is disabled in the current recording settings
+    static DataApiEvent start(CallMetrics.Operation operation) {
+        switch (operation) {
+            case EXECUTE_STATEMENT:
+                return StatementEvent.start();
+            case BATCH_EXECUTE_STATEMENT:
+                return BatchEvent.start();
+            default:
+                return TransactionEvent.start(operation);
+        }
+    }
+
+    void finish(CallMetrics metrics);
+}
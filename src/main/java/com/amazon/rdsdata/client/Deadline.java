@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+import lombok.val;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which a statement must complete, including retries, pages and waiting for permits
+ */
+@Value
+class Deadline {
+    // requests are not sent with less time left than this
+    static final long MIN_REQUEST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    long nanoTime;
+
+    static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    static Deadline at(Instant deadline) {
+        return after(Duration.between(Instant.now(), deadline));
+    }
+
+    long remainingNanos() {
+        return nanoTime - System.nanoTime();
+    }
+
+    /**
+     * @return the remaining time
+     * @throws DeadlineExceededException if too little time is left to send a request
+     */
+    Duration checkRemaining() {
+        val remaining = remainingNanos();
+        if (remaining < MIN_REQUEST_NANOS) {
+            throw new DeadlineExceededException();
+        }
+        return Duration.ofNanos(remaining);
+    }
+}
@@ -15,20 +15,29 @@
 package com.amazon.rdsdata.client;
 
 import lombok.AllArgsConstructor;
+import lombok.val;
 import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
 import software.amazon.awssdk.services.rdsdata.model.Field;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 public class ExecutionResult {
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+
+    private final ResultMetadata resultMetadata;
     private final List<String> fieldNames;
     private final List<Row> rows;
     private final Long numberOfRecordsUpdated;
     private final MappingOptions mappingOptions;
 
+    // set on a copy for every caller when a metrics listener is configured, since results may be shared by caches
+    private final MetricsListener metricsListener;
+    private final String sql;
+
     ExecutionResult(List<ColumnMetadata> metadata,
                     List<List<Field>> fields,
                     Long numberOfRecordsUpdated,
@@ -36,8 +45,61 @@ public class ExecutionResult {
         this.rows = convertToRows(fields);
         this.numberOfRecordsUpdated = numberOfRecordsUpdated;
         this.mappingOptions = mappingOptions;
+        this.metricsListener = MetricsListener.NO_OP;
+        this.sql = null;
 
-        this.fieldNames = extractFieldNames(metadata);
+        this.resultMetadata = new ResultMetadata(extractFieldNames(metadata));
+        this.fieldNames = resultMetadata.getFieldNames();
+    }
+
+    // Creates a result from a response without column metadata, reusing the metadata of an earlier execution
+    ExecutionResult(ResultMetadata resultMetadata,
+                    List<List<Field>> fields,
+                    Long numberOfRecordsUpdated,
+                    MappingOptions mappingOptions) {
+        this.rows = convertToRows(fields);
+        this.numberOfRecordsUpdated = numberOfRecordsUpdated;
+        this.mappingOptions = mappingOptions;
+        this.metricsListener = MetricsListener.NO_OP;
+        this.sql = null;
+        this.resultMetadata = resultMetadata;
+        this.fieldNames = resultMetadata.getFieldNames();
+    }
+
+    private ExecutionResult(MappingOptions mappingOptions,
+                            ResultMetadata resultMetadata,
+                            List<Row> rows,
+                            Long numberOfRecordsUpdated,
+                            MetricsListener metricsListener,
+                            String sql) {
+        this.resultMetadata = resultMetadata;
+        this.fieldNames = resultMetadata.getFieldNames();
+        this.rows = rows;
+        this.numberOfRecordsUpdated = numberOfRecordsUpdated;
+        this.mappingOptions = mappingOptions;
+        this.metricsListener = metricsListener;
+        this.sql = sql;
+    }
+
+    // Combines several pages of the same statement into one result
+    static ExecutionResult merge(List<ExecutionResult> pages) {
+        val first = pages.get(0);
+        val rows = new ArrayList<Row>();
+        Long numberOfRecordsUpdated = null;
+        for (val page : pages) {
+            rows.addAll(page.rows);
+            if (page.numberOfRecordsUpdated != null) {
+                numberOfRecordsUpdated = (numberOfRecordsUpdated == null ? 0L : numberOfRecordsUpdated)
+                        + page.numberOfRecordsUpdated;
+            }
+        }
+        return new ExecutionResult(first.mappingOptions, first.resultMetadata, rows, numberOfRecordsUpdated,
+                MetricsListener.NO_OP, null);
+    }
+
+    // Returns a view of this result that reports mapping to the listener; the rows are shared, not copied
+    ExecutionResult reportingMappingTo(MetricsListener metricsListener, String sql) {
+        return new ExecutionResult(mappingOptions, resultMetadata, rows, numberOfRecordsUpdated, metricsListener, sql);
     }
 
     private List<String> extractFieldNames(List<ColumnMetadata> metadata) {
@@ -66,6 +128,77 @@ public class ExecutionResult {
                 .collect(toList());
     }
 
+    // A rough estimate of the memory held by the result, used to weigh cache entries
+    long estimateSizeInBytes() {
+        long size = OBJECT_OVERHEAD_BYTES;
+        for (val fieldName : fieldNames) {
+            size += estimateSizeInBytes(fieldName);
+        }
+        for (val row : rows) {
+            size += OBJECT_OVERHEAD_BYTES;
+            for (val field : row.fields) {
+                size += OBJECT_OVERHEAD_BYTES + estimateSizeInBytes(field.stringValue());
+                if (field.blobValue() != null) {
+                    size += field.blobValue().asByteBuffer().remaining();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long estimateSizeInBytes(String value) {
+        return value == null ? 0 : OBJECT_OVERHEAD_BYTES + 2L * value.length();
+    }
+
+    // the first column of the first row as returned by RDS Data API, null if the result set is empty
+    Field firstField() {
+        if (rows.isEmpty() || rows.get(0).columnCount() == 0) {
+            return null;
+        }
+        return rows.get(0).fields.get(0);
+    }
+
+    List<Field> getColumnFields(int columnIndex) {
+        return rows.stream()
+                .map(row -> row.fields.get(columnIndex))
+                .collect(toList());
+    }
+
+    List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    int columnCount(int rowIndex) {
+        return rows.get(rowIndex).columnCount();
+    }
+
+    Field getField(int rowIndex, int columnIndex) {
+        return rows.get(rowIndex).fields.get(columnIndex);
+    }
+
+    ResultMetadata getResultMetadata() {
+        return resultMetadata;
+    }
+
+    int rowCount() {
+        return rows.size();
+    }
+
+    <T> T getValue(int rowIndex, int columnIndex, Class<T> type) {
+        return rows.get(rowIndex).getValue(columnIndex, type);
+    }
+
+    <T> List<T> getColumnValues(String columnName, Class<T> type) {
+        val columnIndex = fieldNames.indexOf(columnName);
+        if (columnIndex < 0) {
+            throw MappingException.columnNotFound(columnName);
+        }
+
+        return rows.stream()
+                .map(row -> row.getValue(columnIndex, type))
+                .collect(toList());
+    }
+
     /**
      * Will return the number of records inserted/updated by the query.
      *
@@ -87,16 +220,12 @@ public class ExecutionResult {
             throw MappingException.emptyResultSet();
         }
 
-        return mapToSingle(mapperClass, fieldNames, rows.get(0));
-    }
-
-    private <T> T mapToSingle(Class<T> mapperClass, List<String> fieldNames, Row row) {
         // TODO: check that columnMetadata array has the same length as fields
-
-        // TODO: this can be cached
-        ObjectWriter<T> writer = ConstructorObjectWriter.create(mapperClass, fieldNames)
-                .orElseGet(() -> PropertyObjectWriter.create(mapperClass, fieldNames, mappingOptions));
-        return writer.write(row);
+        val event = JfrSupport.AVAILABLE ? MappingEvent.start() : null;
+        val startTime = metricsListener == MetricsListener.NO_OP ? 0 : System.nanoTime();
+        val result = resultMetadata.writerFor(mapperClass, mappingOptions).write(rows.get(0));
+        reportMapping(event, mapperClass, 1, startTime);
+        return result;
     }
 
     /**
@@ -106,9 +235,23 @@ public class ExecutionResult {
      * @throws MappingException if failed to map RDS Data API results to the specified class
      */
     public <T> List<T> mapToList(Class<T> mapperClass) {
-        return rows.stream()
-                .map(row -> mapToSingle(mapperClass, fieldNames, row))
+        val event = JfrSupport.AVAILABLE ? MappingEvent.start() : null;
+        val startTime = metricsListener == MetricsListener.NO_OP ? 0 : System.nanoTime();
+        val writer = resultMetadata.writerFor(mapperClass, mappingOptions);
+        val result = rows.stream()
+                .map(writer::write)
                 .collect(toList());
+        reportMapping(event, mapperClass, result.size(), startTime);
+        return result;
+    }
+
+    private void reportMapping(MappingEvent event, Class<?> mapperClass, int rowCount, long startTime) {
+        if (event != null) {
+            event.finish(mapperClass, rowCount);
+        }
+        if (metricsListener != MetricsListener.NO_OP) {
+            metricsListener.onMapping(sql, mapperClass, rowCount, System.nanoTime() - startTime);
+        }
     }
 
     /**
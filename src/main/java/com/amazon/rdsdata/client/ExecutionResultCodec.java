@@ -0,0 +1,373 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.io.ByteStreams;
+import lombok.val;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Converts an {@link ExecutionResult} to a compact binary form and back, for example to keep results in an external
+ * cache. A decoded result supports all mapping methods.
+ *
+ * The encoding starts with a version byte, followed by the number of updated records, the field names, a type per
+ * column and the rows. A field name is stored with its length plus one, so that a missing name has the length 0. Every row starts with a bitmap of its null values. Longs are stored as zigzag varints, doubles
+ * as 8 raw bytes, and strings (UTF-8) and blobs with a varint length prefix. A column whose non-null values have
+ * different types stores a type tag before every value.
+ */
+public final class ExecutionResultCodec {
+    static final byte VERSION = 2;
+    private static final byte VERSION_WITHOUT_NULL_NAMES = 1; // still decoded; missing names were written as ""
+
+    static String ERROR_UNSUPPORTED_VERSION = "Unsupported encoding version: ";
+    static String ERROR_TRUNCATED = "Encoded result is truncated";
+    static String ERROR_UNSUPPORTED_VALUE = "Only string, long, double, boolean and blob values can be encoded";
+    static String ERROR_ROW_WIDTH = "All rows must have the same number of columns";
+
+    private static final byte TYPE_NULL = 0; // all values of the column are null
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_BLOB = 5;
+    private static final byte TYPE_MIXED = 6;
+
+    private static final Field NULL_FIELD = Field.builder().isNull(true).build();
+
+    private ExecutionResultCodec() {
+    }
+
+    /**
+     * Writes the binary form of a result
+     * @param result result to encode
+     * @param outputStream stream to write to; it is not closed
+     * @throws IOException if writing to the stream failed
+     */
+    public static void write(ExecutionResult result, OutputStream outputStream) throws IOException {
+        val out = new DataOutputStream(outputStream);
+        val columnCount = columnCount(result);
+        val columnTypes = columnTypes(result, columnCount);
+
+        out.writeByte(VERSION);
+        val numberOfRecordsUpdated = result.getNumberOfRecordsUpdated();
+        out.writeBoolean(numberOfRecordsUpdated != null);
+        if (numberOfRecordsUpdated != null) {
+            writeLong(out, numberOfRecordsUpdated);
+        }
+        writeLength(out, result.getFieldNames().size());
+        for (val fieldName : result.getFieldNames()) {
+            writeNullableString(out, fieldName);
+        }
+        writeLength(out, columnCount);
+        out.write(columnTypes);
+
+        writeLength(out, result.rowCount());
+        val nullBitmap = new byte[(columnCount + 7) / 8];
+        for (int row = 0; row < result.rowCount(); row++) {
+            for (int column = 0; column < columnCount; column++) {
+                if (isNull(result.getField(row, column))) {
+                    nullBitmap[column / 8] |= (byte) (1 << (column % 8));
+                }
+            }
+            out.write(nullBitmap);
+            for (int column = 0; column < columnCount; column++) {
+                val field = result.getField(row, column);
+                if (isNull(field)) {
+                    continue;
+                }
+                if (columnTypes[column] == TYPE_MIXED) {
+                    out.writeByte(typeOf(field));
+                    writeValue(out, typeOf(field), field);
+                } else {
+                    writeValue(out, columnTypes[column], field);
+                }
+            }
+            Arrays.fill(nullBitmap, (byte) 0);
+        }
+        out.flush();
+    }
+
+    /**
+     * @param result result to encode
+     * @return a buffer with the binary form of the result
+     */
+    public static ByteBuffer encode(ExecutionResult result) {
+        val bytes = new ByteArrayOutputStream();
+        try {
+            write(result, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Reads a result written by {@link #write(ExecutionResult, OutputStream)}, mapping it with the default options
+     * @param inputStream stream to read from until its end
+     * @return the decoded result
+     * @throws IOException if reading from the stream failed
+     */
+    public static ExecutionResult read(InputStream inputStream) throws IOException {
+        return decode(ByteBuffer.wrap(ByteStreams.toByteArray(inputStream)));
+    }
+
+    /**
+     * Decodes a result created by {@link #encode(ExecutionResult)}, mapping it with the default options
+     * @param buffer buffer positioned at the start of the binary form; its position is moved past it
+     * @return the decoded result
+     */
+    public static ExecutionResult decode(ByteBuffer buffer) {
+        return decode(buffer, MappingOptions.DEFAULT);
+    }
+
+    /**
+     * Decodes a result created by {@link #encode(ExecutionResult)}
+     * @param buffer buffer positioned at the start of the binary form; its position is moved past it
+     * @param mappingOptions options used by the mapping methods of the decoded result
+     * @return the decoded result
+     */
+    public static ExecutionResult decode(ByteBuffer buffer, MappingOptions mappingOptions) {
+        try {
+            val version = buffer.get();
+            checkArgument(version == VERSION || version == VERSION_WITHOUT_NULL_NAMES,
+                    ERROR_UNSUPPORTED_VERSION + version);
+
+            val numberOfRecordsUpdated = buffer.get() != 0 ? readLong(buffer) : null;
+            val fieldNameCount = readLength(buffer);
+            val fieldNames = new ArrayList<String>(Math.min(fieldNameCount, buffer.remaining()));
+            for (int i = 0; i < fieldNameCount; i++) {
+                fieldNames.add(version == VERSION ? readNullableString(buffer) : readString(buffer));
+            }
+            // every column takes a type byte, so a larger count cannot be valid
+            val columnCount = readValueLength(buffer);
+            val columnTypes = new byte[columnCount];
+            buffer.get(columnTypes);
+
+            val rowCount = readLength(buffer);
+            val rows = new ArrayList<List<Field>>(Math.min(rowCount, buffer.remaining()));
+            val nullBitmap = new byte[(columnCount + 7) / 8];
+            for (int row = 0; row < rowCount; row++) {
+                buffer.get(nullBitmap);
+                val fields = new ArrayList<Field>(columnCount);
+                for (int column = 0; column < columnCount; column++) {
+                    if ((nullBitmap[column / 8] & (1 << (column % 8))) != 0) {
+                        fields.add(NULL_FIELD);
+                    } else {
+                        val type = columnTypes[column] == TYPE_MIXED ? buffer.get() : columnTypes[column];
+                        fields.add(readValue(buffer, type));
+                    }
+                }
+                rows.add(fields);
+            }
+            return new ExecutionResult(new ResultMetadata(fieldNames), rows, numberOfRecordsUpdated, mappingOptions);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED, e);
+        }
+    }
+
+    private static int columnCount(ExecutionResult result) {
+        if (result.rowCount() == 0) {
+            return result.getFieldNames().size();
+        }
+        val columnCount = result.columnCount(0);
+        for (int row = 1; row < result.rowCount(); row++) {
+            checkArgument(result.columnCount(row) == columnCount, ERROR_ROW_WIDTH);
+        }
+        return columnCount;
+    }
+
+    private static byte[] columnTypes(ExecutionResult result, int columnCount) {
+        val columnTypes = new byte[columnCount];
+        for (int row = 0; row < result.rowCount(); row++) {
+            for (int column = 0; column < columnCount; column++) {
+                val field = result.getField(row, column);
+                if (isNull(field)) {
+                    continue;
+                }
+                val type = typeOf(field);
+                if (columnTypes[column] == TYPE_NULL) {
+                    columnTypes[column] = type;
+                } else if (columnTypes[column] != type) {
+                    columnTypes[column] = TYPE_MIXED;
+                }
+            }
+        }
+        return columnTypes;
+    }
+
+    private static boolean isNull(Field field) {
+        return Boolean.TRUE.equals(field.isNull()) || (field.stringValue() == null && field.longValue() == null
+                && field.doubleValue() == null && field.booleanValue() == null && field.blobValue() == null
+                && field.arrayValue() == null);
+    }
+
+    private static byte typeOf(Field field) {
+        if (field.stringValue() != null) {
+            return TYPE_STRING;
+        } else if (field.longValue() != null) {
+            return TYPE_LONG;
+        } else if (field.doubleValue() != null) {
+            return TYPE_DOUBLE;
+        } else if (field.booleanValue() != null) {
+            return TYPE_BOOLEAN;
+        } else if (field.blobValue() != null) {
+            return TYPE_BLOB;
+        }
+        throw new IllegalArgumentException(ERROR_UNSUPPORTED_VALUE);
+    }
+
+    private static void writeValue(DataOutputStream out, byte type, Field field) throws IOException {
+        switch (type) {
+            case TYPE_STRING:
+                writeString(out, field.stringValue());
+                break;
+            case TYPE_LONG:
+                writeLong(out, field.longValue());
+                break;
+            case TYPE_DOUBLE:
+                out.writeDouble(field.doubleValue());
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean(field.booleanValue());
+                break;
+            default:
+                val bytes = field.blobValue().asByteArrayUnsafe();
+                writeLength(out, bytes.length);
+                out.write(bytes);
+        }
+    }
+
+    private static Field readValue(ByteBuffer buffer, byte type) {
+        switch (type) {
+            case TYPE_STRING:
+                return Field.builder().stringValue(readString(buffer)).build();
+            case TYPE_LONG:
+                return Field.builder().longValue(readLong(buffer)).build();
+            case TYPE_DOUBLE:
+                return Field.builder().doubleValue(buffer.getDouble()).build();
+            case TYPE_BOOLEAN:
+                return Field.builder().booleanValue(buffer.get() != 0).build();
+            case TYPE_BLOB:
+                val bytes = new byte[readValueLength(buffer)];
+                buffer.get(bytes);
+                return Field.builder().blobValue(SdkBytes.fromByteArrayUnsafe(bytes)).build();
+            default:
+                throw new IllegalArgumentException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        val bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLength(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeLength(out, 0);
+            return;
+        }
+        val bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLength(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readNullableString(ByteBuffer buffer) {
+        val lengthPlusOne = readLength(buffer);
+        return lengthPlusOne == 0 ? null : readString(buffer, lengthPlusOne - 1);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return readString(buffer, readLength(buffer));
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED);
+        }
+        if (buffer.hasArray()) {
+            val value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        val bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // zigzag encoding keeps small negative numbers short
+    private static void writeLong(DataOutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readLong(ByteBuffer buffer) {
+        val encoded = readVarint(buffer);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    private static void writeLength(DataOutputStream out, int length) throws IOException {
+        writeVarint(out, length);
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        val length = readVarint(buffer);
+        checkArgument(length >= 0 && length <= Integer.MAX_VALUE, "Malformed length: " + length);
+        return (int) length;
+    }
+
+    private static int readValueLength(ByteBuffer buffer) {
+        val length = readLength(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED);
+        }
+        return length;
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            val b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -17,9 +17,13 @@ package com.amazon.rdsdata.client;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -33,7 +37,8 @@ public class Executor {
     private final RdsData rdsData;
     private List<Object> paramSets = emptyList();
     private String transactionId = ""; // RDS Data API understands empty string as "no transaction"
-    private boolean continueAfterTimeout = false;
+    private CompletableFuture<String> pendingTransactionId;
+    private StatementOptions options = StatementOptions.DEFAULT;
 
     /**
      * Sets a single parameter set
@@ -105,7 +110,9 @@ public class Executor {
         val paramSetsAsMaps = paramSets.stream()
                 .map(paramSet -> toMap(sql, paramSet))
                 .collect(toList());
-        return rdsData.batchExecuteStatement(transactionId, sql, paramSetsAsMaps);
+        // parameters are converted while the transaction may still be beginning
+        val parameterSets = rdsData.encodeParameterSets(sql, paramSetsAsMaps);
+        return rdsData.batchExecuteStatement(resolveTransactionId(), sql, parameterSets, options);
     }
 
     private ExecutionResult executeAsSingle() {
@@ -113,10 +120,11 @@ public class Executor {
                 .findFirst()
                 .map(paramSet -> toMap(sql, paramSet))
                 .orElse(emptyMap());
-        return rdsData.executeStatement(transactionId, sql, firstParamSetAsMap, continueAfterTimeout);
+        val statement = new EncodedStatement(sql, rdsData.encodeParameters(sql, firstParamSetAsMap), options);
+        return rdsData.executeStatement(resolveTransactionId(), statement);
     }
 
-    private Map<String, Object> toMap(String sql, Object paramSet) {
+    static Map<String, Object> toMap(String sql, Object paramSet) {
         if (paramSet instanceof Map) {
             // TODO: check that all keys are strings
             return (Map<String, Object>) paramSet;
@@ -136,12 +144,103 @@ public class Executor {
         return this;
     }
 
+    /**
+     * Specifies that the query should be executed in a transaction that may not have begun yet. Parameters are
+     * converted before waiting for the transaction ID
+     */
+    Executor withTransactionId(CompletableFuture<String> transactionId) {
+        this.pendingTransactionId = transactionId;
+        return this;
+    }
+
+    private String resolveTransactionId() {
+        if (pendingTransactionId == null) {
+            return transactionId;
+        }
+        return FutureUtils.await(pendingTransactionId, options.getDeadline(), "the transaction to begin");
+    }
+
     /**
      * Specifies that the query should continue to be executed even after timeout
      * @return a reference to this object so that method calls can be chained
      */
     public Executor withContinueAfterTimeout() {
-        this.continueAfterTimeout = true;
+        this.options = options.withContinueAfterTimeout(true);
+        return this;
+    }
+
+    /**
+     * Limits the total time the query may take, including retries, pages and waiting for a concurrency limit permit.
+     * Every request is sent with the remaining time as its API call timeout, and no request is sent when less than
+     * a few milliseconds remain
+     * @param timeout maximum duration
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withDeadline(Duration timeout) {
+        this.options = options.withDeadline(Deadline.after(timeout));
+        return this;
+    }
+
+    /**
+     * Limits the total time the query may take, see {@link #withDeadline(Duration)}
+     * @param deadline point in time by which the query must complete
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withDeadline(Instant deadline) {
+        this.options = options.withDeadline(Deadline.at(deadline));
+        return this;
+    }
+
+    /**
+     * Sets the priority class used by the configured {@link RequestScheduler}. Queries are
+     * {@link Priority#INTERACTIVE} by default
+     * @param priority priority class
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withPriority(Priority priority) {
+        this.options = options.withPriority(priority);
+        return this;
+    }
+
+    /**
+     * Sets how long the result of the query is kept by the configured {@link ResultCache}. A zero TTL disables
+     * caching of the query
+     * @param ttl time to live of the cached result
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withCacheTtl(Duration ttl) {
+        this.options = options.withCacheTtl(ttl);
+        return this;
+    }
+
+    /**
+     * Tags the query with the tables it reads or writes. Writes invalidate results of reads cached by
+     * the configured {@link ResultCache} with any of the same tags
+     * @param tableTags names of the tables
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withTableTags(String... tableTags) {
+        this.options = options.withTableTags(new HashSet<>(asList(tableTags)));
+        return this;
+    }
+
+    /**
+     * Lets the configured {@link NegativeCache} remember that the query returned no rows. Use it for lookups that
+     * often miss, together with {@link #withTableTags(String...)} for the table they read
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor withNegativeCaching() {
+        this.options = options.withNegativeCaching(true);
+        return this;
+    }
+
+    /**
+     * Marks the query as idempotent, so that the configured {@link RetryPolicy} may repeat it after any transient
+     * error. Read-only queries are considered idempotent anyway
+     * @return a reference to this object so that method calls can be chained
+     */
+    public Executor asIdempotent() {
+        this.options = options.withIdempotent(true);
         return this;
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs concurrent INSERT, UPDATE and DELETE statements that are executed outside of transactions inside a shared
+ * transaction, so that the database commits them together instead of one by one.
+ *
+ * The first caller opens a group and waits up to <code>maxDelay</code> for statements of other callers; the group is
+ * closed when the delay has passed or <code>maxGroupSize</code> statements were collected. As soon as a second
+ * statement joins, the first caller begins the shared transaction and executes the statements as they arrive, so the
+ * wait for further statements overlaps their round-trips. Every caller returns only after the shared transaction was
+ * committed. If any statement of the group fails, the transaction is rolled back and every statement of the group is
+ * executed again on its own, so each caller gets the same outcome it would get without grouping. If the rollback
+ * fails, every statement of the group fails instead, as they could wait for locks that the transaction still holds. A
+ * group with a single statement is executed without a transaction.
+ */
+public class GroupCommitter {
+    private final GroupingWindow<String, EncodedStatement> window;
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder groupedStatementCount = new LongAdder();
+    private final LongAdder rollbackCount = new LongAdder();
+
+    @Builder
+    private GroupCommitter(int maxGroupSize, Duration maxDelay) {
+        checkArgument(maxGroupSize > 0, "Group size must be positive");
+        checkArgument(!maxDelay.isNegative(), "Delay must not be negative");
+
+        this.window = new GroupingWindow<>(maxGroupSize, maxDelay.toNanos());
+    }
+
+    public static class GroupCommitterBuilder {
+        private int maxGroupSize = 20;
+        private Duration maxDelay = Duration.ofMillis(5);
+    }
+
+    /**
+     * @return the number of shared transactions that were committed
+     */
+    public long getCommitCount() {
+        return commitCount.sum();
+    }
+
+    /**
+     * @return the number of statements that were committed as part of a shared transaction
+     */
+    public long getGroupedStatementCount() {
+        return groupedStatementCount.sum();
+    }
+
+    /**
+     * @return the number of shared transactions that were rolled back because one of their statements failed
+     */
+    public long getRollbackCount() {
+        return rollbackCount.sum();
+    }
+
+    ExecutionResult execute(RdsData rdsData, String database, EncodedStatement statement) {
+        return window.execute(database, statement, statement.getOptions().getDeadline(),
+                () -> new SharedTransaction(rdsData));
+    }
+
+    /**
+     * Runs the statements of one group. The transaction is begun as soon as a second statement joins, and statements
+     * are executed as they join, so that only the last ones and the commit are left when the window closes
+     */
+    @RequiredArgsConstructor
+    private class SharedTransaction implements GroupingWindow.GroupExecution<EncodedStatement> {
+        private final RdsData rdsData;
+        private final List<ExecutionResult> results = new ArrayList<>();
+        private String transactionId;
+        private RuntimeException failure;
+
+        @Override
+        public void joined(List<GroupingWindow.Member<EncodedStatement>> members) {
+            if (members.size() == 1 || failure != null) {
+                return;
+            }
+            try {
+                if (transactionId == null) {
+                    transactionId = rdsData.beginTransaction();
+                }
+                for (int i = results.size(); i < members.size(); i++) {
+                    results.add(rdsData.executeEncodedStatement(transactionId, members.get(i).getItem()));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        @Override
+        public void execute(List<GroupingWindow.Member<EncodedStatement>> members) {
+            if (members.size() == 1) {
+                executeIndividually(rdsData, members.get(0));
+                return;
+            }
+
+            joined(members);
+            if (failure != null) {
+                // while a transaction that was not rolled back holds its locks, the statements would wait for them
+                if (transactionId != null && !rollback()) {
+                    throw failure;
+                }
+                members.forEach(member -> executeIndividually(rdsData, member));
+                return;
+            }
+
+            rdsData.commitTransaction(transactionId);
+            commitCount.increment();
+            groupedStatementCount.add(members.size());
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).getResult().complete(results.get(i));
+            }
+        }
+
+        private boolean rollback() {
+            rollbackCount.increment();
+            try {
+                rdsData.rollbackTransaction(transactionId);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+
+    private static void executeIndividually(RdsData rdsData, GroupingWindow.Member<EncodedStatement> member) {
+        try {
+            member.getResult().complete(rdsData.executeEncodedStatement("", member.getItem()));
+        } catch (RuntimeException e) {
+            member.getResult().completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Groups calls with the same key that arrive within a time window. The first caller of a group waits until the window
+ * has passed or the group is full, and then executes the whole group; the other callers wait for their results, at
+ * most until their deadline. A caller that stops waiting is not removed from the group, so its item may still be
+ * executed.
+ *
+ * A {@link GroupExecution} may start on the members while the window is still open: the first caller passes it the
+ * members joined so far whenever new ones arrive, so that their work overlaps the wait for further members.
+ */
+@RequiredArgsConstructor
+class GroupingWindow<K, T> {
+    private final int maxGroupSize;
+    private final long maxDelayNanos;
+    private final ConcurrentMap<K, Group<T>> openGroups = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the item to the open group of the key, or opens a new one
+     * @param groupExecution executes the group; must complete the result of every member
+     * @return the result of the item
+     */
+    ExecutionResult execute(K key, T item, Deadline deadline, Consumer<List<Member<T>>> groupExecution) {
+        return execute(key, item, deadline, () -> groupExecution::accept);
+    }
+
+    /**
+     * Adds the item to the open group of the key, or opens a new one
+     * @param groupExecution creates the execution of a new group
+     * @return the result of the item
+     */
+    ExecutionResult execute(K key, T item, Deadline deadline, Supplier<GroupExecution<T>> groupExecution) {
+        while (true) {
+            val group = openGroups.computeIfAbsent(key, k -> new Group<>());
+            val member = new Member<T>(item, new CompletableFuture<>());
+            boolean leader;
+            synchronized (group) {
+                if (group.closed) {
+                    continue; // executed already, open a new one
+                }
+                group.members.add(member);
+                leader = group.members.size() == 1;
+                if (group.members.size() >= maxGroupSize) {
+                    close(key, group);
+                } else if (!leader) {
+                    group.notifyAll();
+                }
+            }
+
+            if (leader) {
+                lead(key, group, groupExecution.get());
+            }
+            return FutureUtils.await(member.result, deadline, "a group of statements");
+        }
+    }
+
+    private void lead(K key, Group<T> group, GroupExecution<T> groupExecution) {
+        boolean interrupted = false;
+        val deadline = System.nanoTime() + maxDelayNanos;
+        int passedCount = 0;
+        try {
+            while (true) {
+                List<Member<T>> joined;
+                synchronized (group) {
+                    long remaining = deadline - System.nanoTime();
+                    while (!group.closed && remaining > 0 && group.members.size() == passedCount) {
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(group, remaining);
+                        } catch (InterruptedException e) {
+                            interrupted = true; // other callers are waiting for this group, execute it anyway
+                            break;
+                        }
+                        remaining = deadline - System.nanoTime();
+                    }
+                    if (group.closed || remaining <= 0 || interrupted) {
+                        close(key, group);
+                        break;
+                    }
+                    joined = new ArrayList<>(group.members);
+                    passedCount = joined.size();
+                }
+                groupExecution.joined(joined);
+            }
+
+            groupExecution.execute(group.members);
+        } catch (RuntimeException | Error e) {
+            group.members.forEach(member -> member.result.completeExceptionally(e));
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // must be called while holding the lock of the group
+    private void close(K key, Group<T> group) {
+        if (!group.closed) {
+            group.closed = true;
+            openGroups.remove(key, group);
+            group.notifyAll();
+        }
+    }
+
+    /**
+     * Executes a group of members
+     */
+    interface GroupExecution<T> {
+        /**
+         * Called by the first caller whenever members joined while the window is open
+         * @param members all members that joined so far, in the order they joined
+         */
+        default void joined(List<Member<T>> members) {
+        }
+
+        /**
+         * Called once the group is closed; must complete the result of every member
+         * @param members all members of the group, in the order they joined
+         */
+        void execute(List<Member<T>> members);
+    }
+
+    @Value
+    static class Member<T> {
+        T item;
+        CompletableFuture<ExecutionResult> result;
+    }
+
+    private static class Group<T> {
+        private final List<Member<T>> members = new ArrayList<>();
+        private boolean closed;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sends a second, identical request for read-only statements outside of transactions when the first one has not
+ * completed within the hedging delay. The first successful response wins and the other request is cancelled.
+ *
+ * The first request runs on the caller's thread; only the hedge is sent from another thread. When the hedge wins, the
+ * caller's thread is interrupted to abort the first request.
+ *
+ * The delay is either fixed or, when a percentile is set, follows that percentile of recently observed latencies.
+ * Every request earns <code>maxHedgeRatio</code> of a hedge, so under a broad slowdown no more than that share of
+ * requests is duplicated.
+ */
+public class HedgingPolicy {
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_INTERVAL = 50;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-hedging-timer")
+                    .build());
+
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final double maxHedgeRatio;
+    private final double maxHedgeTokens;
+    private final ExecutorService executorService;
+
+    private final long[] latencies;
+    private int latencyCount;
+    private int samplesSinceRecompute;
+    private volatile long adaptiveDelayNanos = -1;
+    private double hedgeTokens;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    @Builder
+    private HedgingPolicy(Duration delay,
+                          double percentile,
+                          int latencyWindow,
+                          double maxHedgeRatio,
+                          ExecutorService executorService) {
+        checkArgument(percentile >= 0 && percentile < 100, "Percentile must be between 0 and 100");
+        checkArgument(maxHedgeRatio >= 0 && maxHedgeRatio <= 1, "Hedge ratio must be between 0 and 1");
+        checkArgument(latencyWindow >= MIN_SAMPLES, "Latency window must contain at least " + MIN_SAMPLES + " samples");
+
+        this.fixedDelayNanos = delay.toNanos();
+        this.percentile = percentile;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.maxHedgeTokens = Math.max(1, maxHedgeRatio * 100);
+        this.latencies = new long[latencyWindow];
+        this.executorService = executorService != null ? executorService : Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("rds-data-hedging-%d")
+                        .build());
+    }
+
+    public static class HedgingPolicyBuilder {
+        private Duration delay = Duration.ofMillis(100);
+        private double percentile = 0; // fixed delay
+        private int latencyWindow = 1000;
+        private double maxHedgeRatio = 0.05;
+    }
+
+    /**
+     * @return the number of hedgeable requests
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return the number of hedges sent
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * @return the number of hedges that completed before the original request
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * @return the delay after which a hedge is sent
+     */
+    public Duration getCurrentDelay() {
+        return Duration.ofNanos(delayNanos());
+    }
+
+    <T> T call(Supplier<T> sdkCall) {
+        requestCount.increment();
+        earnHedgeTokens();
+
+        val race = new Race<T>(Thread.currentThread(), sdkCall);
+        val startTime = System.nanoTime();
+        val timer = TIMER.schedule(race::sendHedge, delayNanos(), TimeUnit.NANOSECONDS);
+        T result = null;
+        RuntimeException failure = null;
+        try {
+            result = sdkCall.get();
+        } catch (RuntimeException e) {
+            failure = e;
+        } catch (Error e) {
+            if (!race.finish()) {
+                race.awaitHedgeWin();
+            }
+            timer.cancel(false);
+            race.cancelHedge();
+            throw e;
+        }
+
+        if (!race.finish()) {
+            // the hedge succeeded first and interrupted this thread
+            val hedgeResult = race.awaitHedgeWin();
+            recordLatency(System.nanoTime() - startTime);
+            hedgeWinCount.increment();
+            return hedgeResult;
+        }
+        timer.cancel(false);
+        recordLatency(System.nanoTime() - startTime);
+        if (failure == null) {
+            race.cancelHedge();
+            return result;
+        }
+        if (!race.hedgeSent) {
+            throw failure;
+        }
+
+        // the hedge may still succeed
+        try {
+            val hedgeResult = FutureUtils.await(race.hedgeResult, "a hedged request");
+            hedgeWinCount.increment();
+            return hedgeResult;
+        } catch (RuntimeException e) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The first request and its hedge. Whichever completes first moves the state away from <code>RUNNING</code>, so
+     * that the hedge interrupts the caller's thread only while the first request is still running
+     */
+    @RequiredArgsConstructor
+    private class Race<T> {
+        private static final int RUNNING = 0;
+        private static final int FINISHED = 1;
+        private static final int HEDGE_WON = 2;
+
+        private final Thread callerThread;
+        private final Supplier<T> sdkCall;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private final CompletableFuture<T> hedgeResult = new CompletableFuture<>();
+        private volatile boolean hedgeSent;
+        private volatile Future<?> hedgeTask;
+
+        void sendHedge() {
+            if (state.get() != RUNNING || !tryTakeHedgeToken()) {
+                return;
+            }
+            hedgeCount.increment();
+            hedgeSent = true;
+            try {
+                hedgeTask = executorService.submit(this::runHedge);
+            } catch (RejectedExecutionException e) {
+                hedgeResult.completeExceptionally(e);
+                return;
+            }
+            if (hedgeResult.isCancelled()) {
+                hedgeTask.cancel(true);
+            }
+        }
+
+        private void runHedge() {
+            if (hedgeResult.isDone()) {
+                return;
+            }
+            T result;
+            try {
+                result = sdkCall.get();
+            } catch (RuntimeException | Error e) {
+                hedgeResult.completeExceptionally(e);
+                return;
+            }
+            if (state.compareAndSet(RUNNING, HEDGE_WON)) {
+                callerThread.interrupt();
+            }
+            hedgeResult.complete(result);
+        }
+
+        // called by the caller's thread after the first request; false if the hedge has won
+        boolean finish() {
+            return state.compareAndSet(RUNNING, FINISHED);
+        }
+
+        // called by the caller's thread once the hedge is no longer needed
+        void cancelHedge() {
+            hedgeResult.cancel(false);
+            val task = hedgeTask;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        T awaitHedgeWin() {
+            try {
+                // the hedge completes its result only after it has interrupted the caller's thread
+                return Uninterruptibles.getUninterruptibly(hedgeResult);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private long delayNanos() {
+        val adaptiveDelay = adaptiveDelayNanos;
+        return adaptiveDelay >= 0 ? adaptiveDelay : fixedDelayNanos;
+    }
+
+    private synchronized void earnHedgeTokens() {
+        hedgeTokens = Math.min(maxHedgeTokens, hedgeTokens + maxHedgeRatio);
+    }
+
+    private synchronized boolean tryTakeHedgeToken() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens -= 1;
+        return true;
+    }
+
+    synchronized void recordLatency(long latencyNanos) {
+        if (percentile == 0) {
+            return;
+        }
+
+        latencies[latencyCount % latencies.length] = latencyNanos;
+        latencyCount = latencyCount == Integer.MAX_VALUE ? latencies.length : latencyCount + 1;
+        samplesSinceRecompute++;
+        if (latencyCount >= MIN_SAMPLES && (adaptiveDelayNanos < 0 || samplesSinceRecompute >= RECOMPUTE_INTERVAL)) {
+            val samples = Arrays.copyOf(latencies, Math.min(latencyCount, latencies.length));
+            Arrays.sort(samples);
+            adaptiveDelayNanos = samples[(int) Math.ceil(percentile / 100 * samples.length) - 1];
+            samplesSinceRecompute = 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * A {@link MetricsListener} that aggregates measurements into in-process {@link Histogram}s, without locks.
+ * Durations are recorded in nanoseconds and sizes in bytes.
+ *
+ * <pre>
+ * HistogramMetricsListener metrics = new HistogramMetricsListener();
+ * RdsData client = RdsData.builder()
+ *         ...
+ *         .metricsListener(metrics)
+ *         .build();
+ * ...
+ * long p99 = metrics.getCallLatency(CallMetrics.Operation.EXECUTE_STATEMENT).getValueAtPercentile(99);
+ * </pre>
+ */
+public class HistogramMetricsListener implements MetricsListener {
+    private final Map<CallMetrics.Operation, Histogram> callLatencies = new EnumMap<>(CallMetrics.Operation.class);
+    private final Histogram requestSize = new Histogram();
+    private final Histogram responseSize = new Histogram();
+    private final Histogram rowCount = new Histogram();
+    private final Histogram columnCount = new Histogram();
+    private final Histogram parameterEncodingTime = new Histogram();
+    private final Histogram mappingTime = new Histogram();
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    public HistogramMetricsListener() {
+        for (val operation : CallMetrics.Operation.values()) {
+            callLatencies.put(operation, new Histogram());
+        }
+    }
+
+    @Override
+    public void onCall(CallMetrics metrics) {
+        callLatencies.get(metrics.getOperation()).record(metrics.getDurationNanos());
+        requestSize.record(metrics.getRequestBytes());
+        if (metrics.getError() != null) {
+            errorCounts.computeIfAbsent(metrics.getErrorType(), type -> new LongAdder()).increment();
+            return;
+        }
+        responseSize.record(metrics.getResponseBytes());
+        if (metrics.getOperation() == CallMetrics.Operation.EXECUTE_STATEMENT) {
+            rowCount.record(metrics.getRowCount());
+            columnCount.record(metrics.getColumnCount());
+        }
+    }
+
+    @Override
+    public void onParameterEncoding(String sql, int parameterSetCount, long durationNanos) {
+        parameterEncodingTime.record(durationNanos);
+    }
+
+    @Override
+    public void onMapping(String sql, Class<?> targetClass, int rowCount, long durationNanos) {
+        mappingTime.record(durationNanos);
+    }
+
+    /**
+     * @param operation RDS Data API operation
+     * @return latencies of calls of the operation, including failed calls
+     */
+    public Histogram getCallLatency(CallMetrics.Operation operation) {
+        return callLatencies.get(operation);
+    }
+
+    /**
+     * @return estimated sizes of requests
+     */
+    public Histogram getRequestSize() {
+        return requestSize;
+    }
+
+    /**
+     * @return estimated sizes of successful responses
+     */
+    public Histogram getResponseSize() {
+        return responseSize;
+    }
+
+    /**
+     * @return numbers of rows returned by statements
+     */
+    public Histogram getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return numbers of columns returned by statements
+     */
+    public Histogram getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return time spent converting the parameters of statements
+     */
+    public Histogram getParameterEncodingTime() {
+        return parameterEncodingTime;
+    }
+
+    /**
+     * @return time spent mapping result sets to objects
+     */
+    public Histogram getMappingTime() {
+        return mappingTime;
+    }
+
+    /**
+     * @return the number of failed calls by the simple class name of the error
+     */
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts.entrySet().stream()
+                .collect(toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+/**
+ * A hash map from primitive <code>long</code> keys to non-null values, with open addressing and linear probing.
+ * It is filled once up to the expected size and only read afterwards, so it does not need to grow.
+ */
+class LongObjectMap<V> {
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private int size;
+
+    LongObjectMap(int expectedSize) {
+        // keep the load factor at or below one half
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    void put(long key, V value) {
+        if (size * 2 >= keys.length) {
+            throw new IllegalStateException("Map is full");
+        }
+        int index = indexOf(key);
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (values[index] == null) {
+            size++;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int index = indexOf(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // spreads sequential ids over the table
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
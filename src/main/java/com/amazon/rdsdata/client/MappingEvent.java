@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.val;
+
+// only used when JfrSupport.AVAILABLE is true
+@Name("com.amazon.rdsdata.Mapping")
+@Label("Result Mapping")
+@Description("Mapping of a result set to objects")
+@Category("RDS Data API")
+@StackTrace(false)
+class MappingEvent extends Event {
+    @Label("Target Class")
+    Class<?> targetClass;
+
+    @Label("Rows")
+    int rows;
+
+    // returns a started event, or null if the event is disabled in the current recording settings
+    static MappingEvent start() {
+        val event = new MappingEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    void finish(Class<?> targetClass, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.targetClass = targetClass;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class MappingException extends RuntimeException {
     static final String ERROR_EMPTY_RESULT_SET = "Result set is empty";
     static final String ERROR_CANNOT_CONVERT_TO_TYPE = "Cannot convert field %s to type %s";
     static final String ERROR_AMBIGUOUS_SETTER = "Ambiguous setter for field %s. Possible setters found: %s";
+    static final String ERROR_COLUMN_NOT_FOUND = "Result set does not contain column '%s'";
 
     private MappingException(String message) {
         super(message);
@@ -80,6 +81,11 @@ public class MappingException extends RuntimeException {
         return new MappingException(message);
     }
 
+    static MappingException columnNotFound(String columnName) {
+        val message = String.format(ERROR_COLUMN_NOT_FOUND, columnName);
+        return new MappingException(message);
+    }
+
     static MappingException ambiguousSetter(String fieldName, List<Method> possibleSetters) {
         val settersListString = possibleSetters.stream()
             .map(Method::toString)
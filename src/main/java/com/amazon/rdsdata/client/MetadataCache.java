@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Remembers the column names of read-only statements, so that later executions of the same SQL are sent without
+ * <code>includeResultMetadata</code> and the response carries no column metadata. Cached results share the interned
+ * field names and the object mappers created for them.
+ *
+ * When a response has a different number of columns than the cached metadata, for example after the table was
+ * altered, the statement is executed again with metadata and the cache entry is replaced. A column that was renamed
+ * without changing the number of columns is not detected; call {@link #clear()} after such schema changes.
+ *
+ * When metadata of more than the maximum number of statements is cached, the least recently used statements are evicted.
+ */
+public class MetadataCache {
+    private final int maxStatements;
+
+    private final LinkedHashMap<Key, ResultMetadata> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    @Builder
+    private MetadataCache(int maxStatements) {
+        checkArgument(maxStatements > 0, "Maximum number of statements must be positive");
+
+        this.maxStatements = maxStatements;
+    }
+
+    public static class MetadataCacheBuilder {
+        private int maxStatements = 10_000;
+    }
+
+    /**
+     * @return the number of statements sent without requesting column metadata
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of read-only statements sent with column metadata
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of statements executed again because the number of columns changed
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    /**
+     * @return the number of statements evicted to stay within the maximum number of statements
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return the number of statements with cached metadata
+     */
+    public synchronized int getStatementCount() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached metadata
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    ResultMetadata get(StatementKey statement, MappingOptions mappingOptions) {
+        ResultMetadata metadata;
+        synchronized (this) {
+            metadata = entries.get(keyOf(statement, mappingOptions));
+        }
+        if (metadata == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return metadata;
+    }
+
+    synchronized void put(StatementKey statement, MappingOptions mappingOptions, ResultMetadata metadata) {
+        // statements without columns are always sent with metadata
+        if (metadata.columnCount() == 0) {
+            return;
+        }
+        entries.put(keyOf(statement, mappingOptions), metadata);
+
+        val iterator = entries.entrySet().iterator();
+        while (entries.size() > maxStatements && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.increment();
+        }
+    }
+
+    // whether the cached metadata still describes the records of a response sent without metadata
+    boolean matches(ResultMetadata metadata, List<List<Field>> records) {
+        if (records == null || records.isEmpty() || records.get(0).size() == metadata.columnCount()) {
+            return true;
+        }
+        refreshCount.increment();
+        return false;
+    }
+
+    synchronized void invalidate(StatementKey statement, MappingOptions mappingOptions) {
+        entries.remove(keyOf(statement, mappingOptions));
+    }
+
+    private static Key keyOf(StatementKey statement, MappingOptions mappingOptions) {
+        return new Key(statement, mappingOptions.useLabelForMapping, mappingOptions.ignoreMissingSetters);
+    }
+
+    @Value
+    private static class Key {
+        StatementKey statement;
+        boolean useLabelForMapping;
+        boolean ignoreMissingSetters; // object mappers depend on it
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+
+/**
+ * Receives measurements of RDS Data API calls and of the stages around them: converting parameters into
+ * {@link software.amazon.awssdk.services.rdsdata.model.SqlParameter}s and mapping result sets to objects.
+ *
+ * A listener is configured with {@link RdsData.RdsDataBuilder#metricsListener(MetricsListener)}. Methods are called
+ * synchronously on the calling thread, so implementations must be thread-safe, fast and must not throw. The default
+ * {@link #NO_OP} listener is recognized by the client, which then skips taking timestamps and estimating sizes.
+ *
+ * @see HistogramMetricsListener
+ * @see StatementStatistics
+ */
+public interface MetricsListener {
+    MetricsListener NO_OP = new MetricsListener() {};
+
+    /**
+     * Combines several listeners into one that notifies each of them in order
+     * @param listeners listeners to notify
+     * @return a listener that notifies the given listeners
+     */
+    static MetricsListener of(MetricsListener... listeners) {
+        val copy = listeners.clone();
+        return new MetricsListener() {
+            @Override
+            public void onCall(CallMetrics metrics) {
+                for (val listener : copy) {
+                    listener.onCall(metrics);
+                }
+            }
+
+            @Override
+            public void onParameterEncoding(String sql, int parameterSetCount, long durationNanos) {
+                for (val listener : copy) {
+                    listener.onParameterEncoding(sql, parameterSetCount, durationNanos);
+                }
+            }
+
+            @Override
+            public void onMapping(String sql, Class<?> targetClass, int rowCount, long durationNanos) {
+                for (val listener : copy) {
+                    listener.onMapping(sql, targetClass, rowCount, durationNanos);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called after every call to RDS Data API, including calls that failed. Retries and hedges of the call are
+     * included in its duration
+     * @param metrics measurements of the call
+     */
+    default void onCall(CallMetrics metrics) {
+    }
+
+    /**
+     * Called after the parameters of a statement were converted
+     * @param sql SQL statement
+     * @param parameterSetCount number of converted parameter sets
+     * @param durationNanos time spent converting the parameters
+     */
+    default void onParameterEncoding(String sql, int parameterSetCount, long durationNanos) {
+    }
+
+    /**
+     * Called after rows of a result set were mapped to objects
+     * @param sql SQL statement that returned the rows
+     * @param targetClass class the rows were mapped to
+     * @param rowCount number of mapped rows
+     * @param durationNanos time spent mapping the rows
+     */
+    default void onMapping(String sql, Class<?> targetClass, int rowCount, long durationNanos) {
+    }
+}
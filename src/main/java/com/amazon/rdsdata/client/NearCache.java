@@ -0,0 +1,297 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Keeps the complete result of a query, typically a small reference table, in memory and answers lookups by key or by
+ * indexed columns without calling RDS Data API.
+ *
+ * The result is loaded on the first lookup and, with a refresh interval, reloaded in the background. With a watermark
+ * column, a background refresh first queries the maximum value of that column and reloads only when it changed.
+ * Every load builds a new snapshot with all indexes and replaces the previous one at once, so lookups never block and
+ * always see a consistent snapshot. When a background refresh fails, the previous snapshot stays in use.
+ *
+ * A result larger than the RDS Data API response size limit is loaded in pages through a {@link PageSplitter}, whose
+ * learned page size is kept for later loads. Unless the query has an <code>ORDER BY</code> of its own, which must then
+ * be on a unique key, pages are ordered by the key column.
+ *
+ * <code>Long</code> and <code>Integer</code> keys are stored in a primitive hash map.
+ */
+@RequiredArgsConstructor
+public class NearCache<K, T> implements AutoCloseable {
+    static String ERROR_CLOSED = "Near cache is closed";
+    static String ERROR_NO_INDEX = "No index on column ";
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-near-cache-refresh")
+                    .build());
+
+    private final RdsData rdsData;
+    private final String sql;
+    private final String keyColumn;
+    private final Class<K> keyType;
+    private final Class<T> resultType;
+    private final Map<String, Class<?>> indexedColumns = new LinkedHashMap<>();
+    private final PageSplitter pageSplitter = PageSplitter.builder().build();
+    private Duration refreshInterval;
+    private String watermarkColumn;
+
+    private volatile Snapshot<K, T> snapshot;
+    private ScheduledFuture<?> scheduledRefresh;
+    private boolean closed;
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final LongAdder refreshFailureCount = new LongAdder();
+
+    /**
+     * Builds a hash index on the given column, see {@link #findBy(String, Object)}
+     * @param column name of the column in the result set
+     * @param type type of the column values
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public NearCache<K, T> withIndex(String column, Class<?> type) {
+        indexedColumns.put(column, type);
+        return this;
+    }
+
+    /**
+     * Reloads the result in the background with the given interval
+     * @param refreshInterval time between refreshes
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public NearCache<K, T> withRefreshInterval(Duration refreshInterval) {
+        checkArgument(!refreshInterval.isNegative() && !refreshInterval.isZero(), "Refresh interval must be positive");
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    /**
+     * Makes refreshes reload the result only when the maximum value of the given column changed, for example a
+     * last-modified timestamp or a version number
+     * @param watermarkColumn name of the column in the result set
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public NearCache<K, T> withWatermarkColumn(String watermarkColumn) {
+        this.watermarkColumn = watermarkColumn;
+        return this;
+    }
+
+    /**
+     * @param key value of the key column
+     * @return the row with the given key, or null if there is none
+     */
+    public T get(K key) {
+        val current = currentSnapshot();
+        if (current.byLongKey != null) {
+            return key == null ? null : current.byLongKey.get(((Number) key).longValue());
+        }
+        return current.byKey.get(key);
+    }
+
+    /**
+     * @param column indexed column, see {@link #withIndex(String, Class)}
+     * @param value value of the column
+     * @return the rows with the given value, in the order of the query result
+     */
+    public List<T> findBy(String column, Object value) {
+        val index = currentSnapshot().indexes.get(column);
+        checkArgument(index != null, ERROR_NO_INDEX + column);
+        return index.getOrDefault(value, emptyList());
+    }
+
+    /**
+     * @return all rows, in the order of the query result
+     */
+    public List<T> getAll() {
+        return currentSnapshot().rows;
+    }
+
+    /**
+     * @return the number of rows in the current snapshot
+     */
+    public int size() {
+        return currentSnapshot().rows.size();
+    }
+
+    /**
+     * @return the time when the current snapshot was loaded, or null if nothing was loaded yet
+     */
+    public Instant getLoadTime() {
+        val current = snapshot;
+        return current == null ? null : current.loadTime;
+    }
+
+    /**
+     * @return the number of times the result was loaded
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * @return the number of refreshes that skipped loading because the watermark did not change
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.sum();
+    }
+
+    /**
+     * @return the number of background refreshes that failed
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.sum();
+    }
+
+    /**
+     * Reloads the result unless a watermark column is set and its maximum value did not change
+     */
+    public synchronized void refresh() {
+        checkState(!closed, ERROR_CLOSED);
+
+        Field watermark = null;
+        if (watermarkColumn != null) {
+            watermark = rdsData.forSql(watermarkSql()).execute().firstField();
+            if (snapshot != null && Objects.equals(watermark, snapshot.watermark)) {
+                unchangedCount.increment();
+                return;
+            }
+        }
+        snapshot = load(watermark);
+        loadCount.increment();
+    }
+
+    /**
+     * Stops background refreshes
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+    }
+
+    private Snapshot<K, T> currentSnapshot() {
+        val current = snapshot;
+        return current != null ? current : loadFirstSnapshot();
+    }
+
+    private synchronized Snapshot<K, T> loadFirstSnapshot() {
+        if (snapshot == null) {
+            refresh();
+            if (refreshInterval != null) {
+                val intervalNanos = refreshInterval.toNanos();
+                scheduledRefresh = SCHEDULER.scheduleWithFixedDelay(this::refreshInBackground,
+                        intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        return snapshot;
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            refreshFailureCount.increment();
+        }
+    }
+
+    private String watermarkSql() {
+        return "SELECT MAX(" + watermarkColumn + ") FROM ("
+                + StatementUtils.withoutTrailingSemicolonsAndComments(sql) + ") near_cache_watermark";
+    }
+
+    // pages of a statement without a deterministic order may overlap or skip rows
+    private String loadSql() {
+        if (StatementUtils.hasTopLevelOrderBy(sql)) {
+            return sql;
+        }
+        return "SELECT * FROM (" + StatementUtils.withoutTrailingSemicolonsAndComments(sql) + ") near_cache_load"
+                + " ORDER BY " + keyColumn;
+    }
+
+    private Snapshot<K, T> load(Field watermark) {
+        val result = pageSplitter.execute(new StatementKey(null, loadSql()),
+                pagedSql -> rdsData.forSql(pagedSql).execute());
+        val rows = unmodifiableList(result.mapToList(resultType));
+        val keys = result.getColumnValues(keyColumn, keyType);
+
+        LongObjectMap<T> byLongKey = null;
+        Map<K, T> byKey = null;
+        if (keyType == Long.class || keyType == Integer.class) {
+            byLongKey = new LongObjectMap<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (keys.get(i) != null) {
+                    byLongKey.put(((Number) keys.get(i)).longValue(), rows.get(i));
+                }
+            }
+        } else {
+            byKey = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                byKey.put(keys.get(i), rows.get(i));
+            }
+        }
+
+        val indexes = new HashMap<String, Map<Object, List<T>>>();
+        for (val indexedColumn : indexedColumns.entrySet()) {
+            val values = result.getColumnValues(indexedColumn.getKey(), indexedColumn.getValue());
+            val index = new HashMap<Object, List<T>>();
+            for (int i = 0; i < rows.size(); i++) {
+                index.computeIfAbsent(values.get(i), value -> new ArrayList<>()).add(rows.get(i));
+            }
+            index.replaceAll((value, matchingRows) -> unmodifiableList(matchingRows));
+            indexes.put(indexedColumn.getKey(), index);
+        }
+        return new Snapshot<>(rows, byKey, byLongKey, indexes, watermark, Instant.now());
+    }
+
+    @Value
+    private static class Snapshot<K, T> {
+        List<T> rows;
+        Map<K, T> byKey; // null if keys are stored in byLongKey
+        LongObjectMap<T> byLongKey;
+        Map<String, Map<Object, List<T>>> indexes;
+        Field watermark;
+        Instant loadTime;
+    }
+}
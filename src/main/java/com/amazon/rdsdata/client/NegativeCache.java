@@ -0,0 +1,545 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.base.Ticker;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.Builder;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Remembers lookups that returned no rows, so that repeating them does not call RDS Data API. Only read-only
+ * statements outside of transactions marked with {@link Executor#withNegativeCaching()} are cached.
+ *
+ * Empty results are kept for the TTL. A write executed through the same client with a matching table tag
+ * (see {@link Executor#withTableTags(String...)}) invalidates the remembered empty results of lookups with that tag,
+ * including lookups that were in flight during the write. Writes inside transactions invalidate them again when the
+ * transaction is committed. Transactions that are never committed or rolled back through the client are forgotten after
+ * the 24 hours that RDS Data API lets a transaction run.
+ *
+ * A lookup statement with a single parameter can also be backed by a Bloom filter of all existing keys, see
+ * {@link RdsData#seedNegativeCache(String, String, String...)}. Keys that are not in the filter are known not to
+ * exist and are answered immediately. Parameter values of tagged writes are added to the filter before the write is
+ * sent, so the key of an inserted row must be passed as a parameter; a tagged write without parameters drops the
+ * filter until it is seeded again. Tagged writes that run while the keys are scanned are added as well. Keys inserted
+ * by other clients or by untagged writes are not added, so a filter is only used for the Bloom filter TTL after
+ * seeding; lookups then go to the database until it is seeded again.
+ *
+ * Keys are compared by value, not by how the database compares them. Numbers are compared numerically, so
+ * {@code 42}, {@code 42.0} and {@code "42.00"} are the same key, and strings ignore case and trailing spaces. Any
+ * other difference, such as accents under an accent-insensitive collation, makes a lookup key look missing, so the
+ * lookup parameter must otherwise match the scanned value exactly.
+ */
+public class NegativeCache {
+    // rough memory use of a remembered lookup, not counting its parameters
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int PARAMETER_OVERHEAD_BYTES = 64;
+
+    private final long ttlNanos;
+    private final long bloomFilterTtlNanos;
+    private final int maxEntries;
+    private final double bloomFalsePositiveRate;
+    private final Ticker ticker;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> tagVersions = new HashMap<>();
+    private final ConcurrentMap<StatementKey, Filter> filters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<StatementKey, Seeding> seedings = new ConcurrentHashMap<>();
+    private final Set<PendingWrite> pendingWrites = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, TransactionWrites> transactionWrites = new ConcurrentHashMap<>();
+    private final AtomicLong lastTransactionSweep;
+    private long entryBytes;
+
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder bloomRejectCount = new LongAdder();
+    private final LongAdder bloomFalsePositiveCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    @Builder
+    private NegativeCache(Duration ttl, Duration bloomFilterTtl, int maxEntries, double bloomFalsePositiveRate,
+                          Ticker ticker) {
+        checkArgument(maxEntries > 0, "Maximum number of entries must be positive");
+        checkArgument(bloomFalsePositiveRate > 0 && bloomFalsePositiveRate < 1,
+                "False positive rate must be between 0 and 1");
+
+        this.ttlNanos = ttl.toNanos();
+        this.bloomFilterTtlNanos = bloomFilterTtl.toNanos();
+        this.maxEntries = maxEntries;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.ticker = ticker;
+        this.lastTransactionSweep = new AtomicLong(ticker.read());
+    }
+
+    public static class NegativeCacheBuilder {
+        private Duration ttl = Duration.ofMinutes(1);
+        private Duration bloomFilterTtl = Duration.ofMinutes(10);
+        private int maxEntries = 100_000;
+        private double bloomFalsePositiveRate = 0.01;
+        private Ticker ticker = Ticker.systemTicker();
+    }
+
+    /**
+     * @return the number of lookups of statements marked for negative caching
+     */
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    /**
+     * @return the number of lookups answered without calling RDS Data API, including Bloom filter rejections
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of lookups answered because their key was not in the Bloom filter
+     */
+    public long getBloomRejectCount() {
+        return bloomRejectCount.sum();
+    }
+
+    /**
+     * @return the number of lookups whose key was in the Bloom filter but that returned no rows
+     */
+    public long getBloomFalsePositiveCount() {
+        return bloomFalsePositiveCount.sum();
+    }
+
+    /**
+     * @return the measured share of lookups of missing keys that the Bloom filters let through, between 0 and 1
+     */
+    public double getBloomFalsePositiveRate() {
+        val falsePositives = bloomFalsePositiveCount.sum();
+        val negatives = falsePositives + bloomRejectCount.sum();
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    /**
+     * @return the number of tagged writes that invalidated remembered lookups
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * @return the number of remembered lookups, including expired and invalidated ones that were not removed yet
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated memory used by remembered lookups and Bloom filters
+     */
+    public long getMemoryUsageBytes() {
+        long filterBytes = 0;
+        for (val filter : filters.values()) {
+            filterBytes += filter.sizeInBytes;
+        }
+        synchronized (this) {
+            return entryBytes + filterBytes;
+        }
+    }
+
+    /**
+     * Removes all remembered lookups and Bloom filters
+     */
+    public synchronized void clear() {
+        entries.clear();
+        filters.clear();
+        entryBytes = 0;
+    }
+
+    // called before the keys are scanned. Tagged writes that are in flight or start before the filter is published
+    // may not be visible to the scan, so their keys are recorded and added to the filter
+    Seeding startSeeding(StatementKey statement, Set<String> tags) {
+        val seeding = new Seeding(statement, tags);
+        seedings.put(statement, seeding);
+        for (val write : pendingWrites) {
+            if (intersects(write.tags, tags)) {
+                seeding.add(write);
+            }
+        }
+        for (val transaction : transactionWrites.values()) {
+            synchronized (transaction) {
+                for (val write : transaction.writes) {
+                    if (intersects(write.tags, tags)) {
+                        seeding.add(write);
+                    }
+                }
+            }
+        }
+        return seeding;
+    }
+
+    void finishSeeding(Seeding seeding, List<Field> keys) {
+        val expectedInsertions = Math.max(1000, 2L * keys.size());
+        val bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                expectedInsertions, bloomFalsePositiveRate);
+        for (val key : keys) {
+            bloomFilter.put(keyOf(key));
+        }
+        // the number of bits Guava allocates for the expected insertions and false positive rate
+        val bits = (long) (-expectedInsertions * Math.log(bloomFalsePositiveRate) / (Math.log(2) * Math.log(2)));
+        val filter = new Filter(bloomFilter, seeding.tags, bits / 8, ticker.read() + bloomFilterTtlNanos);
+
+        // writes that find the filter add their keys to it, earlier ones were recorded by the seeding
+        filters.put(seeding.statement, filter);
+        seeding.publish(filter);
+        seedings.remove(seeding.statement, seeding);
+    }
+
+    void cancelSeeding(Seeding seeding) {
+        seedings.remove(seeding.statement, seeding);
+    }
+
+    ExecutionResult execute(StatementKey statement,
+                            List<SqlParameter> parameters,
+                            Set<String> tags,
+                            ExecutionResult emptyResult,
+                            Supplier<ExecutionResult> execution) {
+        lookupCount.increment();
+        val filter = parameters.size() == 1 ? activeFilter(statement) : null;
+        if (filter != null && !filter.bloomFilter.mightContain(keyOf(parameters.get(0).value()))) {
+            bloomRejectCount.increment();
+            hitCount.increment();
+            return emptyResult;
+        }
+
+        val key = new Key(statement, new HashSet<>(parameters)); // parameter order does not matter
+        long[] versions;
+        synchronized (this) {
+            versions = currentVersions(tags);
+            val entry = entries.get(key);
+            if (entry != null && entry.expiresAt - ticker.read() > 0
+                    && Arrays.equals(entry.versions, currentVersions(entry.tags))) {
+                hitCount.increment();
+                return entry.result;
+            }
+            if (entry != null) {
+                remove(key, entry);
+            }
+        }
+
+        val result = execution.get();
+        if (result.rowCount() == 0) {
+            if (filter != null) {
+                bloomFalsePositiveCount.increment();
+            }
+            synchronized (this) {
+                put(key, new Entry(result, ticker.read() + ttlNanos, tags, versions, estimateSizeInBytes(parameters)));
+            }
+        }
+        return result;
+    }
+
+    private Filter activeFilter(StatementKey statement) {
+        val filter = filters.get(statement);
+        if (filter != null && filter.expiresAt - ticker.read() <= 0) {
+            filters.remove(statement, filter);
+            return null;
+        }
+        return filter;
+    }
+
+    // called before a tagged write is sent, so that lookups never miss a key that is being written. The write stays
+    // pending until it is visible to other readers, so that seeding the filter meanwhile does not miss its keys
+    PendingWrite beforeWrite(Set<String> tags, List<List<SqlParameter>> parameterSets) {
+        val keys = new ArrayList<String>();
+        for (val parameters : parameterSets) {
+            for (val parameter : parameters) {
+                keys.add(keyOf(parameter.value()));
+            }
+        }
+        val write = new PendingWrite(tags, keys);
+        pendingWrites.add(write);
+
+        for (val seeding : seedings.values()) {
+            if (intersects(seeding.tags, tags)) {
+                seeding.add(write);
+            }
+        }
+        for (val filter : filters.entrySet()) {
+            if (intersects(filter.getValue().tags, tags)) {
+                addTo(filter.getKey(), filter.getValue(), write);
+            }
+        }
+        return write;
+    }
+
+    // called after a tagged write, whether it succeeded or not. Writes in transactions stay pending until the
+    // transaction ends
+    void afterWrite(PendingWrite write, String transactionId) {
+        if (transactionId != null && !transactionId.isEmpty()) {
+            val now = ticker.read();
+            val transaction = transactionWrites.computeIfAbsent(transactionId, id -> new TransactionWrites(now));
+            synchronized (transaction) {
+                transaction.writes.add(write);
+            }
+            removeExpiredTransactions(now);
+        }
+        pendingWrites.remove(write);
+        invalidate(write.tags);
+    }
+
+    // called after a commit, whether it succeeded or not
+    void afterCommit(String transactionId) {
+        val tags = new HashSet<String>();
+        for (val write : endTransaction(transactionId)) {
+            tags.addAll(write.tags);
+        }
+        if (!tags.isEmpty()) {
+            invalidate(tags);
+        }
+    }
+
+    void afterRollback(String transactionId) {
+        endTransaction(transactionId);
+    }
+
+    int getOpenTransactionCount() {
+        return transactionWrites.size();
+    }
+
+    private List<PendingWrite> endTransaction(String transactionId) {
+        val transaction = transactionWrites.remove(transactionId);
+        if (transaction == null) {
+            return new ArrayList<>();
+        }
+        synchronized (transaction) {
+            return new ArrayList<>(transaction.writes);
+        }
+    }
+
+    // transactions that are never committed or rolled back through the client have been ended by RDS Data API
+    private void removeExpiredTransactions(long now) {
+        val previousSweep = lastTransactionSweep.get();
+        if (now - previousSweep < TransactionTableTags.SWEEP_INTERVAL_NANOS
+                || !lastTransactionSweep.compareAndSet(previousSweep, now)) {
+            return;
+        }
+        transactionWrites.values().removeIf(transaction ->
+                now - transaction.startTime > TransactionTableTags.MAX_TRANSACTION_NANOS);
+    }
+
+    private synchronized void invalidate(Set<String> tags) {
+        for (val tag : tags) {
+            tagVersions.merge(tag, 1L, Long::sum);
+        }
+        invalidationCount.increment();
+    }
+
+    // a write without parameters may add any key, so the filter is dropped
+    private void addTo(StatementKey statement, Filter filter, PendingWrite write) {
+        if (write.keys.isEmpty()) {
+            filters.remove(statement, filter);
+            return;
+        }
+        for (val key : write.keys) {
+            filter.bloomFilter.put(key);
+        }
+    }
+
+    private static boolean intersects(Set<String> first, Set<String> second) {
+        for (val tag : first) {
+            if (second.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] currentVersions(Set<String> tags) {
+        return tags.stream()
+                .mapToLong(tag -> tagVersions.getOrDefault(tag, 0L))
+                .toArray();
+    }
+
+    private void put(Key key, Entry entry) {
+        val previous = entries.put(key, entry);
+        if (previous != null) {
+            entryBytes -= previous.sizeInBytes;
+        }
+        entryBytes += entry.sizeInBytes;
+
+        val iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            entryBytes -= iterator.next().getValue().sizeInBytes;
+            iterator.remove();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        entryBytes -= entry.sizeInBytes;
+    }
+
+    private static long estimateSizeInBytes(List<SqlParameter> parameters) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (val parameter : parameters) {
+            size += PARAMETER_OVERHEAD_BYTES + 2L * (parameter.name().length() + keyOf(parameter.value()).length());
+        }
+        return size;
+    }
+
+    // the same key value gives the same string whether it was scanned from a column or passed as a parameter.
+    // Normalizing may only merge keys, which at worst lets a missing key through to the database
+    private static String keyOf(Field value) {
+        if (value == null || Boolean.TRUE.equals(value.isNull())) {
+            return "null";
+        } else if (value.stringValue() != null) {
+            return normalize(value.stringValue());
+        } else if (value.longValue() != null) {
+            return normalize(BigDecimal.valueOf(value.longValue()));
+        } else if (value.doubleValue() != null) {
+            return normalize(BigDecimal.valueOf(value.doubleValue()));
+        } else if (value.booleanValue() != null) {
+            return value.booleanValue().toString();
+        } else if (value.blobValue() != null) {
+            return Base64.getEncoder().encodeToString(value.blobValue().asByteArray());
+        }
+        return value.toString();
+    }
+
+    // DECIMAL columns are returned as strings, and case-insensitive collations ignore case and trailing spaces
+    private static String normalize(String value) {
+        val trimmed = trimTrailingSpaces(value);
+        if (!trimmed.isEmpty() && trimmed.length() < 64 && isNumeric(trimmed)) {
+            try {
+                return normalize(new BigDecimal(trimmed.trim()));
+            } catch (NumberFormatException e) {
+                // not a number after all, compared as a string
+            }
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalize(BigDecimal value) {
+        return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static String trimTrailingSpaces(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    private static boolean isNumeric(String value) {
+        val first = value.trim().charAt(0);
+        return Character.isDigit(first) || first == '-' || first == '+' || first == '.';
+    }
+
+    @Value
+    private static class Key {
+        StatementKey statement;
+        Set<SqlParameter> parameters;
+    }
+
+    @Value
+    private static class Entry {
+        ExecutionResult result;
+        long expiresAt;
+        Set<String> tags;
+        long[] versions; // versions of the tags when the lookup was sent
+        long sizeInBytes;
+    }
+
+    @Value
+    private static class Filter {
+        BloomFilter<CharSequence> bloomFilter;
+        Set<String> tags;
+        long sizeInBytes;
+        long expiresAt;
+    }
+
+    private static class TransactionWrites {
+        private final long startTime;
+        private final List<PendingWrite> writes = new ArrayList<>();
+
+        TransactionWrites(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+
+    // compared by identity, the same keys may be written more than once at a time
+    static class PendingWrite {
+        private final Set<String> tags;
+        private final List<String> keys;
+
+        private PendingWrite(Set<String> tags, List<String> keys) {
+            this.tags = tags;
+            this.keys = keys;
+        }
+    }
+
+    // records the keys of tagged writes while the keys of a statement are scanned
+    class Seeding {
+        private final StatementKey statement;
+        private final Set<String> tags;
+        private final List<PendingWrite> writes = new ArrayList<>();
+        private Filter filter;
+
+        private Seeding(StatementKey statement, Set<String> tags) {
+            this.statement = statement;
+            this.tags = tags;
+        }
+
+        private synchronized void add(PendingWrite write) {
+            if (filter == null) {
+                writes.add(write);
+            } else {
+                // the scan was published while the write was being recorded
+                addTo(statement, filter, write);
+            }
+        }
+
+        private synchronized void publish(Filter filter) {
+            this.filter = filter;
+            for (val write : writes) {
+                addTo(statement, filter, write);
+            }
+            writes.clear();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Recovers read-only statements from the RDS Data API response size limit by re-issuing them
+ * as a sequence of smaller pages (<code>LIMIT ... OFFSET ...</code>) and merging the pages into a single result.
+ *
+ * The page size is halved every time a page is still too large and grown again after successful pages.
+ * The learned page size is remembered per statement, so subsequent executions start paging right away. When page sizes
+ * of more than the maximum number of statements are remembered, the least recently used statements are forgotten.
+ *
+ * Only statements with a top-level <code>ORDER BY</code> are paged; other statements fail with the original error,
+ * because pages without a deterministic order may overlap or skip rows. Pages are only consistent if the
+ * <code>ORDER BY</code> is on a unique key.
+ */
+@Builder
+public class PageSplitter {
+    static final String RESPONSE_SIZE_LIMIT_MESSAGE = "Database returned more than the allowed response size limit";
+
+    @Builder.Default private final int initialPageSize = 1000;
+    @Builder.Default private final int minPageSize = 1;
+    @Builder.Default private final int maxPageSize = 10000;
+    @Builder.Default private final int maxStatements = 10_000;
+
+    private final LinkedHashMap<StatementKey, Integer> learnedPageSizes = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Returns the page size learned for the given statement
+     * @param database database name
+     * @param sql SQL statement
+     * @return the learned page size, or empty if the statement has never exceeded the response size limit
+     */
+    public Optional<Integer> getLearnedPageSize(String database, String sql) {
+        return Optional.ofNullable(learnedPageSize(new StatementKey(database, sql)));
+    }
+
+    ExecutionResult execute(StatementKey key, Function<String, ExecutionResult> runner) {
+        val learnedPageSize = learnedPageSize(key);
+        if (learnedPageSize != null) {
+            return executeInPages(key, learnedPageSize, runner);
+        }
+
+        try {
+            return runner.apply(key.getSql());
+        } catch (BadRequestException e) {
+            if (!isResponseSizeLimitExceeded(e)) {
+                throw e;
+            }
+        }
+        return executeInPages(key, initialPageSize, runner);
+    }
+
+    private ExecutionResult executeInPages(StatementKey key, int pageSize, Function<String, ExecutionResult> runner) {
+        val pages = new ArrayList<ExecutionResult>();
+        long offset = 0;
+        int smallestFailedPageSize = Integer.MAX_VALUE;
+        while (true) {
+            final ExecutionResult page;
+            try {
+                page = runner.apply(StatementUtils.withLimitAndOffset(key.getSql(), pageSize, offset));
+            } catch (BadRequestException e) {
+                if (!isResponseSizeLimitExceeded(e) || pageSize <= minPageSize) {
+                    throw e;
+                }
+                smallestFailedPageSize = Math.min(smallestFailedPageSize, pageSize);
+                pageSize = Math.max(minPageSize, pageSize / 2);
+                continue;
+            }
+
+            pages.add(page);
+            val isLastPage = page.rowCount() < pageSize;
+            if (!isLastPage || pages.size() == 1) {
+                // a short last page does not prove that a full page of this size fits into the limit
+                learnPageSize(key, pageSize);
+            }
+            if (isLastPage) {
+                return ExecutionResult.merge(pages);
+            }
+
+            offset += pageSize;
+            if (pageSize * 2L < smallestFailedPageSize) {
+                pageSize = (int) Math.min(maxPageSize, pageSize * 2L);
+            }
+        }
+    }
+
+    private synchronized Integer learnedPageSize(StatementKey key) {
+        return learnedPageSizes.get(key);
+    }
+
+    private synchronized void learnPageSize(StatementKey key, int pageSize) {
+        learnedPageSizes.put(key, pageSize);
+
+        val iterator = learnedPageSizes.entrySet().iterator();
+        while (learnedPageSizes.size() > maxStatements && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    static boolean isResponseSizeLimitExceeded(BadRequestException e) {
+        return e.getMessage() != null && e.getMessage().contains(RESPONSE_SIZE_LIMIT_MESSAGE);
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Reads the result of a query in parallel by splitting the range of a numeric or time key column into partitions.
+ *
+ * The SQL statement must restrict the key column with the <code>:lowerBound</code> (inclusive) and
+ * <code>:upperBound</code> (exclusive) placeholders, for example
+ * <code>SELECT * FROM orders WHERE id &gt;= :lowerBound AND id &lt; :upperBound ORDER BY id</code>
+ */
+@RequiredArgsConstructor
+public class PartitionedScan<K extends Comparable<? super K>> {
+    static String ERROR_NO_BOUNDS = "Either bounds or a bounds query must be specified";
+    static String ERROR_UNSUPPORTED_KEY_TYPE = "Unsupported partition key type: ";
+    static String ERROR_INVALID_BOUNDS = "Lower bound must not be greater than upper bound";
+    static String ERROR_NULL_BOUNDS = "Bounds must not be null";
+    static String ERROR_NO_UPPER_BOUND = "Bounds query returned a lower bound without an upper bound";
+    static String ERROR_RANGE_TOO_LARGE = "Key range is too large to be partitioned";
+    static String ERROR_PARTITION_NOT_ORDERED = "Rows of a partition are not ordered by the key column";
+
+    static final String LOWER_BOUND = "lowerBound";
+    static final String UPPER_BOUND = "upperBound";
+
+    private final RdsData rdsData;
+    private final String sql;
+    private final String keyColumn;
+    private final Class<K> keyType;
+    private K lowerBound;
+    private K upperBound;
+    private String boundsQuery;
+    private int partitions = 8;
+    private int concurrency = 4;
+    private int maxAttempts = 3;
+    private Duration retryDelay = Duration.ofMillis(100);
+
+    /**
+     * Sets the range of the key column to scan
+     * @param lowerBound the smallest key value (inclusive)
+     * @param upperBound the largest key value (inclusive)
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public PartitionedScan<K> withBounds(K lowerBound, K upperBound) {
+        checkArgument(lowerBound != null && upperBound != null, ERROR_NULL_BOUNDS);
+        checkArgument(lowerBound.compareTo(upperBound) <= 0, ERROR_INVALID_BOUNDS);
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        return this;
+    }
+
+    /**
+     * Sets a query that discovers the range of the key column, for example <code>SELECT MIN(id), MAX(id) FROM orders</code>.
+     * The query must return a single row with the smallest and the largest key values
+     * @param boundsQuery SQL statement
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public PartitionedScan<K> withBoundsQuery(String boundsQuery) {
+        this.boundsQuery = boundsQuery;
+        return this;
+    }
+
+    /**
+     * Sets the number of partitions the key range is split into
+     * @param partitions number of partitions
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public PartitionedScan<K> withPartitions(int partitions) {
+        checkArgument(partitions > 0, "Number of partitions must be positive");
+        this.partitions = partitions;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of partitions that are read at the same time
+     * @param concurrency maximum number of concurrent requests
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public PartitionedScan<K> withConcurrency(int concurrency) {
+        checkArgument(concurrency > 0, "Concurrency must be positive");
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets how many times a single partition is attempted before the whole scan fails
+     * @param maxAttempts maximum number of attempts per partition
+     * @param retryDelay delay before the first retry, doubled for every subsequent retry
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public PartitionedScan<K> withRetries(int maxAttempts, Duration retryDelay) {
+        checkArgument(maxAttempts > 0, "Number of attempts must be positive");
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        return this;
+    }
+
+    /**
+     * Scans all partitions and returns the rows in the order partitions complete.
+     * Closing the stream cancels the partitions that are still running
+     * @param mapperClass class to map to
+     * @return a {@link Stream} of instances of the specified class
+     */
+    public <T> Stream<T> stream(Class<T> mapperClass) {
+        val ranges = buildRanges();
+        val executorService = createExecutorService();
+        val completionService = new ExecutorCompletionService<List<T>>(executorService);
+        for (val range : ranges) {
+            completionService.submit(() -> readPartition(range, mapperClass, false));
+        }
+        executorService.shutdown();
+
+        val partitionsInCompletionOrder = new Iterator<List<T>>() {
+            private int taken = 0;
+
+            @Override
+            public boolean hasNext() {
+                return taken < ranges.size();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                taken++;
+                return await(takeNext(completionService));
+            }
+        };
+        return toStream(partitionsInCompletionOrder, executorService)
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Scans all partitions and returns the rows ordered by the key column. The SQL statement must order the rows by
+     * the key column. Partitions cover disjoint key ranges, so the rows of a partition are returned as soon as it and
+     * the partitions before it complete. Closing the stream cancels the partitions that are still running
+     * @param mapperClass class to map to
+     * @return a {@link Stream} of instances of the specified class ordered by the key column
+     */
+    public <T> Stream<T> orderedStream(Class<T> mapperClass) {
+        val ranges = buildRanges();
+        val executorService = createExecutorService();
+        val futures = new ArrayList<Future<List<T>>>();
+        for (val range : ranges) {
+            futures.add(executorService.submit(() -> readPartition(range, mapperClass, true)));
+        }
+        executorService.shutdown();
+
+        val partitionsInKeyOrder = new Iterator<List<T>>() {
+            private int taken = 0;
+
+            @Override
+            public boolean hasNext() {
+                return taken < futures.size();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return await(futures.get(taken++));
+            }
+        };
+        return toStream(partitionsInKeyOrder, executorService)
+                .flatMap(List::stream);
+    }
+
+    private ExecutorService createExecutorService() {
+        val threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("rds-data-scan-%d")
+                .build();
+        return Executors.newFixedThreadPool(concurrency, threadFactory);
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator, ExecutorService executorService) {
+        val spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(executorService::shutdownNow);
+    }
+
+    private <T> List<T> readPartition(Range<Object> range, Class<T> mapperClass, boolean ordered)
+            throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                val result = rdsData.forSql(sql)
+                        .withParameter(LOWER_BOUND, range.lowerBound)
+                        .withParameter(UPPER_BOUND, range.upperBound)
+                        .execute();
+                if (ordered) {
+                    checkState(isOrdered(result.getColumnValues(keyColumn, keyType)), ERROR_PARTITION_NOT_ORDERED);
+                }
+                return result.mapToList(mapperClass);
+            } catch (SdkException e) {
+                if (attempt >= maxAttempts || !SdkErrors.isTransient(e)) {
+                    throw e;
+                }
+                Thread.sleep(retryDelay.toMillis() << (attempt - 1));
+            }
+        }
+    }
+
+    private static <K extends Comparable<? super K>> boolean isOrdered(List<K> keys) {
+        for (int i = 1; i < keys.size(); i++) {
+            if (keys.get(i - 1) != null && keys.get(i) != null && keys.get(i - 1).compareTo(keys.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<Range<Object>> buildRanges() {
+        // discovered bounds are not kept, so that every scan sees the current range of the table
+        K first = lowerBound;
+        K last = upperBound;
+        if (first == null) {
+            checkState(boundsQuery != null, ERROR_NO_BOUNDS);
+            val bounds = rdsData.forSql(boundsQuery).execute();
+            if (bounds.rowCount() == 0 || bounds.getValue(0, 0, keyType) == null) {
+                return Collections.emptyList(); // nothing to scan
+            }
+            first = bounds.getValue(0, 0, keyType);
+            last = bounds.getValue(0, 1, keyType);
+            checkState(last != null, ERROR_NO_UPPER_BOUND);
+        }
+
+        return buildRanges(toLong(first), toLong(last));
+    }
+
+    private List<Range<Object>> buildRanges(long first, long last) {
+        if (last < first) {
+            return Collections.emptyList(); // a bounds query may return a maximum below the minimum
+        }
+        val span = last - first + 1;
+        // an overflowing span is not positive, and the exclusive upper bound of the last range must fit as well
+        checkArgument(span > 0 && last < Long.MAX_VALUE, ERROR_RANGE_TOO_LARGE);
+        val numberOfRanges = (int) Math.min(partitions, span);
+        val ranges = new ArrayList<Range<Object>>(numberOfRanges);
+        long start = first;
+        for (int i = 0; i < numberOfRanges; i++) {
+            // spread the remainder over the first ranges so that they differ in size by one at most
+            val end = start + span / numberOfRanges + (i < span % numberOfRanges ? 1 : 0);
+            ranges.add(new Range<>(fromLong(start), fromLong(end)));
+            start = end;
+        }
+        return ranges;
+    }
+
+    private long toLong(K key) {
+        if (key instanceof Number) {
+            return ((Number) key).longValue();
+        } else if (key instanceof LocalDateTime) {
+            return ((LocalDateTime) key).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } else if (key instanceof LocalDate) {
+            return ((LocalDate) key).toEpochDay();
+        }
+        throw new IllegalArgumentException(ERROR_UNSUPPORTED_KEY_TYPE + keyType.getName());
+    }
+
+    // integer keys are bound as longs, the exclusive upper bound of a range ending at Integer.MAX_VALUE does not fit
+    private Object fromLong(long value) {
+        if (keyType == Long.class || keyType == Integer.class) {
+            return value;
+        } else if (keyType == LocalDateTime.class) {
+            return keyType.cast(LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1000L),
+                    (int) Math.floorMod(value, 1000L) * 1_000_000, ZoneOffset.UTC));
+        } else if (keyType == LocalDate.class) {
+            return keyType.cast(LocalDate.ofEpochDay(value));
+        }
+        throw new IllegalArgumentException(ERROR_UNSUPPORTED_KEY_TYPE + keyType.getName());
+    }
+
+    private static <V> Future<V> takeNext(ExecutorCompletionService<V> completionService) {
+        try {
+            return completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a partition", e);
+        }
+    }
+
+    private static <V> V await(Future<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a partition", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to read a partition", e.getCause());
+        }
+    }
+
+    @Value
+    static class Range<B> {
+        B lowerBound;
+        B upperBound;
+    }
+}
@@ -23,17 +23,25 @@ import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
 import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
 import software.amazon.awssdk.services.rdsdata.model.DecimalReturnType;
 import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RdsDataRequest;
 import software.amazon.awssdk.services.rdsdata.model.ResultSetOptions;
 import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
 import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.amazon.rdsdata.client.MappingOptions.DEFAULT;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
@@ -50,6 +58,22 @@ public class RdsData {
     @Builder.Default
     @With private MappingOptions mappingOptions = DEFAULT;
 
+    @Builder.Default
+    private MetricsListener metricsListener = MetricsListener.NO_OP;
+
+    private PageSplitter pageSplitter;
+    private RequestScheduler requestScheduler;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private RetryPolicy retryPolicy;
+    private HedgingPolicy hedgingPolicy;
+    private MetadataCache metadataCache;
+    private NegativeCache negativeCache;
+    private ResultCache resultCache;
+    private RequestCoalescer requestCoalescer;
+    private WriteBatcher writeBatcher;
+    private GroupCommitter groupCommitter;
+    private TransactionManager transactionManager;
+
     /**
      * Starts a new transaction
      * @return transaction ID
@@ -60,7 +84,8 @@ public class RdsData {
             .resourceArn(resourceArn)
             .secretArn(secretArn)
             .build();
-        val response = sdkClient.beginTransaction(request);
+        val response = callAndReport(CallMetrics.Operation.BEGIN_TRANSACTION, null, emptyList(),
+                () -> call(RetryScope.NO_STATEMENT, () -> sdkClient.beginTransaction(request)));
         return response.transactionId();
     }
 
@@ -74,7 +99,12 @@ public class RdsData {
             .resourceArn(resourceArn)
             .secretArn(secretArn)
             .build();
-        sdkClient.commitTransaction(request);
+        try {
+            callAndReport(CallMetrics.Operation.COMMIT_TRANSACTION, null, emptyList(),
+                    () -> call(RetryScope.NEVER, () -> sdkClient.commitTransaction(request)));
+        } finally {
+            afterCommit(transactionId);
+        }
     }
 
     /**
@@ -87,7 +117,77 @@ public class RdsData {
             .resourceArn(resourceArn)
             .secretArn(secretArn)
             .build();
-        sdkClient.rollbackTransaction(request);
+        try {
+            callAndReport(CallMetrics.Operation.ROLLBACK_TRANSACTION, null, emptyList(),
+                    () -> call(RetryScope.NEVER, () -> sdkClient.rollbackTransaction(request)));
+        } finally {
+            afterRollback(transactionId);
+        }
+    }
+
+    /**
+     * Starts a new transaction and returns a handle that rolls it back when closed without a commit
+     * @return a {@link Transaction} instance
+     * @see Transaction
+     */
+    public Transaction openTransaction() {
+        return Transaction.begin(this, transactionManager);
+    }
+
+    /**
+     * Starts a new transaction without waiting for it to begin. Statements of the returned handle convert their
+     * parameters right away and are sent as soon as the transaction ID is known
+     * @return a {@link Transaction} instance
+     * @see Transaction
+     */
+    public Transaction beginTransactionAsync() {
+        return Transaction.beginAsync(this, transactionManager);
+    }
+
+    /**
+     * Executes the unit of work in a new transaction and commits it. The transaction is rolled back if the unit of
+     * work throws an exception. With a {@link TransactionManager}, the unit of work is repeated after deadlocks and
+     * serialization failures
+     * @param unitOfWork function that executes statements in the given transaction
+     * @return the result of the unit of work
+     */
+    public <T> T inTransaction(Function<Transaction, T> unitOfWork) {
+        if (transactionManager == null) {
+            return executeInTransaction(unitOfWork);
+        }
+        return transactionManager.call(() -> executeInTransaction(unitOfWork));
+    }
+
+    /**
+     * Executes the unit of work in a new transaction and commits it. The transaction is rolled back if the unit of
+     * work throws an exception. With a {@link TransactionManager}, the unit of work is repeated after deadlocks and
+     * serialization failures
+     * @param unitOfWork consumer that executes statements in the given transaction
+     */
+    public void runInTransaction(Consumer<Transaction> unitOfWork) {
+        inTransaction(transaction -> {
+            unitOfWork.accept(transaction);
+            return null;
+        });
+    }
+
+    private <T> T executeInTransaction(Function<Transaction, T> unitOfWork) {
+        try (val transaction = beginTransactionAsync()) {
+            val result = unitOfWork.apply(transaction);
+            if (!transaction.isFinished()) {
+                transaction.commit();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Starts a new transaction whose statements are submitted without waiting for the previous ones to complete
+     * @return a {@link TransactionPipeline} instance
+     * @see TransactionPipeline
+     */
+    public TransactionPipeline beginPipelinedTransaction() {
+        return new TransactionPipeline(this);
     }
 
     /**
@@ -122,42 +222,398 @@ public class RdsData {
                 .withParamSets(singletonList(result.parameters));
     }
 
-    ExecutionResult executeStatement(String transactionId, String sql, Map<String, Object> params, boolean continueAfterTimeout) {
+    /**
+     * Creates a {@link PartitionedScan} that reads the result of the given SQL in parallel, splitting the range of
+     * the key column into partitions. The SQL statement must restrict the key column with the placeholders
+     * <code>:lowerBound</code> (inclusive) and <code>:upperBound</code> (exclusive)
+     * @param sql SQL statement with <code>:lowerBound</code> and <code>:upperBound</code> placeholders
+     * @param keyColumn name of the key column in the result set
+     * @param keyType type of the key column: {@link Long}, {@link Integer}, {@link java.time.LocalDateTime}
+     *                or {@link java.time.LocalDate}
+     * @return a {@link PartitionedScan} instance
+     * @see PartitionedScan
+     */
+    public <K extends Comparable<? super K>> PartitionedScan<K> forPartitionedScan(String sql, String keyColumn, Class<K> keyType) {
+        checkArgument(!isNullOrEmpty(sql), ERROR_EMPTY_OR_NULL_SQL);
+
+        return new PartitionedScan<>(this, sql, keyColumn, keyType);
+    }
+
+    /**
+     * Creates a {@link BatchLoader} that loads rows by key, combining keys requested within a short window into one
+     * query. The SQL statement must contain the <code>:keys</code> placeholder inside an <code>IN</code> list
+     * @param sql SQL statement with the <code>:keys</code> placeholder
+     * @param keyColumn name of the key column in the result set
+     * @param keyType type of the key column
+     * @param resultType class to map rows to
+     * @return a {@link BatchLoader} instance
+     * @see BatchLoader
+     */
+    public <K, T> BatchLoader<K, T> forBatchLoader(String sql, String keyColumn, Class<K> keyType, Class<T> resultType) {
+        checkArgument(!isNullOrEmpty(sql), ERROR_EMPTY_OR_NULL_SQL);
+        checkArgument(BatchLoader.REGEX_KEYS.matcher(sql).find(), "SQL statement must contain the :keys placeholder");
+
+        return new BatchLoader<>(this, sql, keyColumn, keyType, resultType);
+    }
+
+    /**
+     * Creates a {@link NearCache} that keeps the result of the given SQL in memory and answers lookups by key
+     * @param sql SQL statement without placeholders, typically selecting a whole reference table
+     * @param keyColumn name of the key column in the result set
+     * @param keyType type of the key column
+     * @param resultType class to map rows to
+     * @return a {@link NearCache} instance
+     * @see NearCache
+     */
+    public <K, T> NearCache<K, T> forNearCache(String sql, String keyColumn, Class<K> keyType, Class<T> resultType) {
+        checkArgument(!isNullOrEmpty(sql), ERROR_EMPTY_OR_NULL_SQL);
+
+        return new NearCache<>(this, sql, keyColumn, keyType, resultType);
+    }
+
+    /**
+     * Loads all existing keys of a lookup statement into a Bloom filter of the configured {@link NegativeCache}, so
+     * that lookups of other keys are answered without calling RDS Data API. Seeding again replaces the filter.
+     * Lookup keys must match the scanned keys by value, see {@link NegativeCache}
+     * @param lookupSql lookup statement with a single placeholder, as passed to {@link #forSql(String, Object...)}
+     * @param keyScanSql statement that selects all existing keys in its first column
+     * @param tableTags tags of the writes that may add keys
+     * @see NegativeCache
+     */
+    public void seedNegativeCache(String lookupSql, String keyScanSql, String... tableTags) {
+        checkState(negativeCache != null, "No negative cache is configured");
+        checkArgument(!isNullOrEmpty(lookupSql) && !isNullOrEmpty(keyScanSql), ERROR_EMPTY_OR_NULL_SQL);
+
+        val sql = lookupSql.contains("?") ? PlaceholderUtils.convertToNamed(lookupSql, (Object) null).sql : lookupSql;
+        val seeding = negativeCache.startSeeding(new StatementKey(database, sql), new HashSet<>(asList(tableTags)));
+        try {
+            negativeCache.finishSeeding(seeding, forSql(keyScanSql).execute().getColumnFields(0));
+        } finally {
+            negativeCache.cancelSeeding(seeding);
+        }
+    }
+
+    /**
+     * Creates a {@link WriteBehindWriter} that buffers writes of the given SQL by key and executes them in batches
+     * @param sql SQL statement with named placeholders
+     * @param keyFunction function that returns the key of a written object
+     * @return a {@link WriteBehindWriter} instance
+     * @see WriteBehindWriter
+     */
+    public <K, V> WriteBehindWriter<K, V> forWriteBehind(String sql, Function<V, K> keyFunction) {
+        checkArgument(!isNullOrEmpty(sql), ERROR_EMPTY_OR_NULL_SQL);
+
+        return new WriteBehindWriter<>(this, sql, keyFunction);
+    }
+
+    ExecutionResult executeStatement(String transactionId, EncodedStatement statement) {
+        val sql = statement.getSql();
+        val parameters = statement.getParameters();
+        val options = statement.getOptions();
+        if (isNullOrEmpty(transactionId) && StatementUtils.isReadOnly(sql)) {
+            return withMappingMetrics(executeRead(transactionId, sql, parameters, options), sql);
+        }
+        val pendingWrite = beforeWrite(sql, singletonList(parameters), options);
+        try {
+            return withMappingMetrics(executeWithoutCache(transactionId, sql, parameters, options), sql);
+        } finally {
+            afterWrite(transactionId, sql, options, pendingWrite);
+        }
+    }
+
+    // results are shared by caches and callers, so every caller gets its own view that reports mapping
+    private ExecutionResult withMappingMetrics(ExecutionResult result, String sql) {
+        if (metricsListener == MetricsListener.NO_OP) {
+            return result;
+        }
+        return result.reportingMappingTo(metricsListener, sql);
+    }
+
+    private ExecutionResult executeRead(String transactionId, String sql, List<SqlParameter> parameters, StatementOptions options) {
+        val statement = new StatementKey(database, sql);
+        if (negativeCache != null && options.isNegativeCaching()) {
+            return negativeCache.execute(statement, parameters, options.getTableTags(), emptyResult(),
+                    () -> executeCachedRead(statement, transactionId, sql, parameters, options));
+        }
+        return executeCachedRead(statement, transactionId, sql, parameters, options);
+    }
+
+    private ExecutionResult executeCachedRead(StatementKey statement, String transactionId, String sql,
+                                              List<SqlParameter> parameters, StatementOptions options) {
+        if (resultCache != null) {
+            return resultCache.execute(statement, mappingOptions, parameters, options,
+                    () -> executeWithoutCache(transactionId, sql, parameters, options));
+        }
+        return executeWithoutCache(transactionId, sql, parameters, options);
+    }
+
+    private ExecutionResult executeWithoutCache(String transactionId, String sql, List<SqlParameter> parameters, StatementOptions options) {
+        if (requestCoalescer != null && isNullOrEmpty(transactionId) && StatementUtils.isReadOnly(sql)) {
+            return requestCoalescer.execute(new StatementKey(database, sql), mappingOptions, parameters,
+                    options.getDeadline(), () -> executeInPages(transactionId, sql, parameters, options));
+        }
+        if (writeBatcher != null && isNullOrEmpty(transactionId) && !parameters.isEmpty()
+                && !options.isContinueAfterTimeout() && StatementUtils.isBatchable(sql)) {
+            return writeBatcher.execute(this, new StatementKey(database, sql), options, parameters,
+                    () -> executeSingleStatement(transactionId, sql, parameters, options),
+                    (batchTransactionId, parameterSets, deadline) -> {
+                        executeBatch(batchTransactionId, sql, parameterSets, options.withDeadline(deadline));
+                        return batchedWriteResult();
+                    });
+        }
+        if (groupCommitter != null && isNullOrEmpty(transactionId)
+                && !options.isContinueAfterTimeout() && StatementUtils.isWrite(sql)) {
+            return groupCommitter.execute(this, database, new EncodedStatement(sql, parameters, options));
+        }
+        return executeInPages(transactionId, sql, parameters, options);
+    }
+
+    private ExecutionResult executeInPages(String transactionId, String sql, List<SqlParameter> parameters, StatementOptions options) {
+        if (pageSplitter != null && isNullOrEmpty(transactionId) && StatementUtils.isPageable(sql)) {
+            val statement = new StatementKey(database, sql);
+            return pageSplitter.execute(statement,
+                    pagedSql -> executeSingleStatement(statement, transactionId, pagedSql, parameters, options));
+        }
+        return executeSingleStatement(transactionId, sql, parameters, options);
+    }
+
+    // sends the statement as it is, without caches, batching or group commit
+    ExecutionResult executeEncodedStatement(String transactionId, EncodedStatement statement) {
+        val result = executeSingleStatement(transactionId, statement.getSql(), statement.getParameters(), statement.getOptions());
+        return withMappingMetrics(result, statement.getSql());
+    }
+
+    private ExecutionResult executeSingleStatement(String transactionId, String sql, List<SqlParameter> parameters, StatementOptions options) {
+        return executeSingleStatement(new StatementKey(database, sql), transactionId, sql, parameters, options);
+    }
+
+    // pages of a statement are sent with a different SQL, but share the metadata of the statement
+    private ExecutionResult executeSingleStatement(StatementKey statement, String transactionId, String sql,
+                                                   List<SqlParameter> parameters, StatementOptions options) {
+        val cachedMetadata = metadataCache != null && StatementUtils.isReadOnly(sql)
+                ? metadataCache.get(statement, mappingOptions)
+                : null;
+        val response = sendStatement(transactionId, sql, parameters, options, cachedMetadata == null);
+        if (cachedMetadata == null) {
+            val result = new ExecutionResult(response.columnMetadata(),
+                response.records(),
+                response.numberOfRecordsUpdated(),
+                mappingOptions);
+            if (metadataCache != null && StatementUtils.isReadOnly(sql)) {
+                metadataCache.put(statement, mappingOptions, result.getResultMetadata());
+            }
+            return result;
+        }
+
+        if (!metadataCache.matches(cachedMetadata, response.records())) {
+            metadataCache.invalidate(statement, mappingOptions);
+            return executeSingleStatement(statement, transactionId, sql, parameters, options);
+        }
+        return new ExecutionResult(cachedMetadata,
+            response.records(),
+            response.numberOfRecordsUpdated(),
+            mappingOptions);
+    }
+
+    private ExecuteStatementResponse sendStatement(String transactionId, String sql, List<SqlParameter> parameters,
+                                                   StatementOptions options, boolean includeResultMetadata) {
         val request = ExecuteStatementRequest.builder()
             .database(database)
             .resourceArn(resourceArn)
             .secretArn(secretArn)
             .sql(sql)
-            .parameters(toSqlParameterList(params))
+            .parameters(parameters)
             .transactionId(transactionId)
-            .continueAfterTimeout(continueAfterTimeout)
+            .continueAfterTimeout(options.isContinueAfterTimeout())
             .resultSetOptions(ResultSetOptions.builder()
                 .decimalReturnType(DecimalReturnType.STRING)
                 .build())
-            .includeResultMetadata(true)
+            .includeResultMetadata(includeResultMetadata)
             .build();
 
-        val response = sdkClient.executeStatement(request);
+        val hedgeable = isNullOrEmpty(transactionId) && StatementUtils.isReadOnly(sql);
+        return callAndReport(CallMetrics.Operation.EXECUTE_STATEMENT, sql, singletonList(parameters),
+                () -> call(retryScope(transactionId, sql, options), hedgeable, options,
+                        () -> sdkClient.executeStatement(withRemainingTime(request, options.getDeadline()))));
+    }
 
-        return new ExecutionResult(response.columnMetadata(),
-            response.records(),
-            response.numberOfRecordsUpdated(),
-            mappingOptions);
+    ExecutionResult batchExecuteStatement(String transactionId, String sql, List<List<SqlParameter>> parameterSets,
+                                          StatementOptions options) {
+        val pendingWrite = beforeWrite(sql, parameterSets, options);
+        try {
+            return executeBatch(transactionId, sql, parameterSets, options);
+        } finally {
+            afterWrite(transactionId, sql, options, pendingWrite);
+        }
+    }
+
+    private NegativeCache.PendingWrite beforeWrite(String sql, List<List<SqlParameter>> parameterSets,
+                                                   StatementOptions options) {
+        if (negativeCache != null && !options.getTableTags().isEmpty() && !StatementUtils.isReadOnly(sql)) {
+            return negativeCache.beforeWrite(options.getTableTags(), parameterSets);
+        }
+        return null;
+    }
+
+    // a failed write may still have been applied, so cached results are invalidated either way. Other callers may
+    // cache the old rows again until the transaction commits, so writes in transactions invalidate after the commit too
+    private void afterWrite(String transactionId, String sql, StatementOptions options,
+                            NegativeCache.PendingWrite pendingWrite) {
+        if (options.getTableTags().isEmpty() || StatementUtils.isReadOnly(sql)) {
+            return;
+        }
+        if (resultCache != null) {
+            resultCache.invalidate(options.getTableTags());
+            if (!isNullOrEmpty(transactionId)) {
+                resultCache.invalidateOnCommit(transactionId, options.getTableTags());
+            }
+        }
+        if (pendingWrite != null) {
+            negativeCache.afterWrite(pendingWrite, transactionId);
+        }
     }
 
-    ExecutionResult batchExecuteStatement(String transactionId, String sql, List<Map<String, Object>> params) {
+    private void afterCommit(String transactionId) {
+        if (resultCache != null) {
+            resultCache.afterCommit(transactionId);
+        }
+        if (negativeCache != null) {
+            negativeCache.afterCommit(transactionId);
+        }
+    }
+
+    private void afterRollback(String transactionId) {
+        if (resultCache != null) {
+            resultCache.afterRollback(transactionId);
+        }
+        if (negativeCache != null) {
+            negativeCache.afterRollback(transactionId);
+        }
+    }
+
+    private ExecutionResult executeBatch(String transactionId, String sql, List<List<SqlParameter>> parameterSets, StatementOptions options) {
         val request = BatchExecuteStatementRequest.builder()
             .database(database)
             .resourceArn(resourceArn)
             .secretArn(secretArn)
             .sql(sql)
             .transactionId(transactionId)
-            .parameterSets(toSqlParameterSets(params))
+            .parameterSets(parameterSets)
             .build();
-        sdkClient.batchExecuteStatement(request);
+        callAndReport(CallMetrics.Operation.BATCH_EXECUTE_STATEMENT, sql, parameterSets,
+                () -> call(retryScope(transactionId, sql, options), false, options,
+                        () -> sdkClient.batchExecuteStatement(withRemainingTime(request, options.getDeadline()))));
+        return emptyResult();
+    }
+
+    // BatchExecuteStatement does not report the number of records each parameter set updated
+    private ExecutionResult batchedWriteResult() {
+        return new ExecutionResult(emptyList(), emptyList(), null, mappingOptions);
+    }
+
+    private ExecutionResult emptyResult() {
         return new ExecutionResult(emptyList(), emptyList(), 0L, mappingOptions);
     }
 
+    private static RetryScope retryScope(String transactionId, String sql, StatementOptions options) {
+        if (!isNullOrEmpty(transactionId)) {
+            return RetryScope.NEVER;
+        }
+        if (options.isIdempotent() || StatementUtils.isReadOnly(sql)) {
+            return RetryScope.ANY_TRANSIENT_ERROR;
+        }
+        return RetryScope.IF_NOT_EXECUTED;
+    }
+
+    // reports the call, including its retries and hedges, to the metrics listener and to Flight Recorder
+    private <T> T callAndReport(CallMetrics.Operation operation, String sql, List<List<SqlParameter>> parameterSets,
+                                Supplier<T> sdkCall) {
+        val event = JfrSupport.AVAILABLE ? DataApiEvent.start(operation) : null;
+        if (metricsListener == MetricsListener.NO_OP && event == null) {
+            return sdkCall.get();
+        }
+
+        val startTime = System.nanoTime();
+        T response = null;
+        Throwable error = null;
+        try {
+            response = sdkCall.get();
+            return response;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            val metrics = CallMetrics.of(operation, sql, parameterSets, response, error, System.nanoTime() - startTime);
+            if (event != null) {
+                event.finish(metrics);
+            }
+            if (metricsListener != MetricsListener.NO_OP) {
+                metricsListener.onCall(metrics);
+            }
+        }
+    }
+
+    private <T> T call(RetryScope retryScope, Supplier<T> sdkCall) {
+        return call(retryScope, false, StatementOptions.DEFAULT, sdkCall);
+    }
+
+    private <T> T call(RetryScope retryScope, boolean hedgeable, StatementOptions options, Supplier<T> sdkCall) {
+        Supplier<T> attempt = hedgingPolicy != null && hedgeable
+                ? () -> hedgingPolicy.call(() -> callWithScheduler(options, sdkCall))
+                : () -> callWithScheduler(options, sdkCall);
+        if (retryPolicy == null) {
+            return attempt.get();
+        }
+        return retryPolicy.call(retryScope, options.getDeadline(), attempt);
+    }
+
+    // the scheduler hands out the limiter permits itself, so callers only ever wait in its priority queues
+    private <T> T callWithScheduler(StatementOptions options, Supplier<T> sdkCall) {
+        if (requestScheduler == null) {
+            return callWithConcurrencyLimit(options.getDeadline(), sdkCall);
+        }
+        return requestScheduler.call(options.getPriority(), options.getDeadline(), concurrencyLimiter, sdkCall);
+    }
+
+    private <T> T callWithConcurrencyLimit(Deadline deadline, Supplier<T> sdkCall) {
+        if (concurrencyLimiter == null) {
+            return sdkCall.get();
+        }
+        return concurrencyLimiter.call(deadline, sdkCall);
+    }
+
+    // the API call timeout of every attempt is the time left until the deadline
+    @SuppressWarnings("unchecked")
+    private static <R extends RdsDataRequest> R withRemainingTime(R request, Deadline deadline) {
+        if (deadline == null) {
+            return request;
+        }
+        val remaining = deadline.checkRemaining();
+        return (R) request.toBuilder()
+                .overrideConfiguration(configuration -> configuration.apiCallTimeout(remaining))
+                .build();
+    }
+
+    List<SqlParameter> encodeParameters(String sql, Map<String, Object> params) {
+        val startTime = metricsListener == MetricsListener.NO_OP ? 0 : System.nanoTime();
+        val parameters = toSqlParameterList(params);
+        reportParameterEncoding(sql, 1, startTime);
+        return parameters;
+    }
+
+    List<List<SqlParameter>> encodeParameterSets(String sql, List<Map<String, Object>> params) {
+        val startTime = metricsListener == MetricsListener.NO_OP ? 0 : System.nanoTime();
+        val parameterSets = toSqlParameterSets(params);
+        reportParameterEncoding(sql, parameterSets.size(), startTime);
+        return parameterSets;
+    }
+
+    private void reportParameterEncoding(String sql, int parameterSetCount, long startTime) {
+        if (metricsListener != MetricsListener.NO_OP) {
+            metricsListener.onParameterEncoding(sql, parameterSetCount, System.nanoTime() - startTime);
+        }
+    }
+
     private List<SqlParameter> toSqlParameterList(Map<String, Object> params) {
         return params.entrySet().stream()
                 .map(this::toSqlParameter)
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent executions of the same read-only statement with the same parameters and {@link MappingOptions}
+ * outside of transactions share a single RDS Data API call. All callers receive the same {@link ExecutionResult}; it
+ * is never modified after creation, and every mapping method creates new objects, so callers can map it independently.
+ * A caller with a deadline stops waiting for the shared call when its own deadline passes. When the shared call fails
+ * because the deadline of the caller that made it passed, or because that caller was interrupted, the other callers
+ * make the call again.
+ */
+public class RequestCoalescer {
+    private final ConcurrentMap<Key, CompletableFuture<ExecutionResult>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * @return the number of calls that were sent to RDS Data API
+     */
+    public long getExecutedCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * @return the number of calls that received the result of an identical call already in flight
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    ExecutionResult execute(StatementKey statement, MappingOptions mappingOptions, List<SqlParameter> parameters,
+                            Deadline deadline, Supplier<ExecutionResult> execution) {
+        val key = new Key(statement, mappingOptions.useLabelForMapping, mappingOptions.ignoreMissingSetters,
+                new HashSet<>(parameters)); // parameter order does not matter
+        val future = new CompletableFuture<ExecutionResult>();
+        CompletableFuture<ExecutionResult> existing;
+        while ((existing = inFlight.putIfAbsent(key, future)) != null) {
+            coalescedCount.increment();
+            try {
+                return FutureUtils.await(existing, deadline, "an identical request");
+            } catch (DeadlineExceededException | ApiCallTimeoutException | AbortedException e) {
+                if (!isFailedForLeader(existing, deadline)) {
+                    throw e;
+                }
+            }
+        }
+
+        executedCount.increment();
+        try {
+            val result = execution.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    // whether the shared call failed for a reason of the caller that made it, and this caller still has time
+    private static boolean isFailedForLeader(CompletableFuture<ExecutionResult> shared, Deadline deadline) {
+        return shared.isCompletedExceptionally()
+                && !Thread.currentThread().isInterrupted()
+                && (deadline == null || deadline.remainingNanos() >= Deadline.MIN_REQUEST_NANOS);
+    }
+
+    @Value
+    private static class Key {
+        StatementKey statement;
+        boolean useLabelForMapping; // field names of the shared result depend on it
+        boolean ignoreMissingSetters;
+        Set<SqlParameter> parameters;
+    }
+}
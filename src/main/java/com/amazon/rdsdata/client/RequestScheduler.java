@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.val;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shares a fixed number of in-flight RDS Data API requests between {@link Priority priority classes}
+ * (see {@link Executor#withPriority(Priority)}).
+ *
+ * Requests that find all slots taken are queued per class. Freed slots are handed out with weighted fair queuing:
+ * while both classes are waiting, interactive requests get <code>interactiveWeight</code> slots for every slot given
+ * to bulk requests, so an interactive request never waits behind more than one bulk request per
+ * <code>interactiveWeight</code> interactive ones. Bulk requests never occupy the slots reserved for interactive
+ * requests, so interactive requests are sent immediately unless the reserved slots are also busy.
+ *
+ * Callers that wait longer than the queue timeout get a {@link ConcurrencyLimitExceededException}.
+ *
+ * When the client also has a {@link ConcurrencyLimiter}, a slot is only handed out together with a permit of the
+ * limiter, so callers never queue a second time behind the FIFO queue of the limiter. The slots reserved for
+ * interactive requests are then also kept free below the current limit, although bulk requests may always take
+ * at least one slot. A limiter used this way should not be shared with clients without the scheduler: permits they
+ * return do not wake up callers waiting here.
+ */
+public class RequestScheduler {
+    private final int maxInFlight;
+    private final int maxBulkInFlight;
+    private final int reservedForInteractive;
+    private final long queueTimeoutNanos;
+
+    private final Map<Priority, PriorityClass> classes = new EnumMap<>(Priority.class);
+    private int inFlight;
+    private double virtualTime;
+
+    @Builder
+    private RequestScheduler(int maxInFlight,
+                             int reservedForInteractive,
+                             int interactiveWeight,
+                             int bulkWeight,
+                             Duration queueTimeout) {
+        checkArgument(maxInFlight > 0, "Maximum number of in-flight requests must be positive");
+        checkArgument(0 <= reservedForInteractive && reservedForInteractive < maxInFlight,
+                "Reserved slots must be between 0 and the maximum number of in-flight requests");
+        checkArgument(interactiveWeight > 0 && bulkWeight > 0, "Weights must be positive");
+
+        this.maxInFlight = maxInFlight;
+        this.maxBulkInFlight = maxInFlight - reservedForInteractive;
+        this.reservedForInteractive = reservedForInteractive;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        classes.put(Priority.INTERACTIVE, new PriorityClass(interactiveWeight));
+        classes.put(Priority.BULK, new PriorityClass(bulkWeight));
+    }
+
+    public static class RequestSchedulerBuilder {
+        private int maxInFlight = 20;
+        private int reservedForInteractive = 5;
+        private int interactiveWeight = 4;
+        private int bulkWeight = 1;
+        private Duration queueTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * @return the number of requests that are currently in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @param priority priority class
+     * @return the number of requests of the given class that are currently in flight
+     */
+    public synchronized int getInFlight(Priority priority) {
+        return classes.get(priority).inFlight;
+    }
+
+    /**
+     * @param priority priority class
+     * @return the number of callers of the given class waiting for a slot
+     */
+    public synchronized int getQueueLength(Priority priority) {
+        return classes.get(priority).waiters.size();
+    }
+
+    /**
+     * @param priority priority class
+     * @return the number of requests of the given class that were sent
+     */
+    public long getRequestCount(Priority priority) {
+        return classes.get(priority).requestCount.sum();
+    }
+
+    /**
+     * @param priority priority class
+     * @return the average time requests of the given class waited for a slot
+     */
+    public Duration getAverageWaitTime(Priority priority) {
+        val priorityClass = classes.get(priority);
+        val requests = priorityClass.requestCount.sum();
+        return requests == 0 ? Duration.ZERO : Duration.ofNanos(priorityClass.totalWaitNanos.sum() / requests);
+    }
+
+    /**
+     * @param priority priority class
+     * @return the longest time a request of the given class waited for a slot
+     */
+    public Duration getMaxWaitTime(Priority priority) {
+        return Duration.ofNanos(classes.get(priority).maxWaitNanos.get());
+    }
+
+    /**
+     * @param priority priority class
+     * @return the number of callers of the given class rejected after the queue timeout
+     */
+    public long getRejectedCount(Priority priority) {
+        return classes.get(priority).rejectedCount.sum();
+    }
+
+    <T> T call(Priority priority, Deadline deadline, ConcurrencyLimiter limiter, Supplier<T> sdkCall) {
+        val priorityClass = classes.get(priority);
+        val startTime = System.nanoTime();
+        acquire(priority, priorityClass, deadline, limiter);
+        val waitTime = System.nanoTime() - startTime;
+        priorityClass.requestCount.increment();
+        priorityClass.totalWaitNanos.add(waitTime);
+        priorityClass.maxWaitNanos.accumulate(waitTime);
+        try {
+            // the limiter learns the outcome and returns its permit before the slot is handed on
+            return limiter == null ? sdkCall.get() : limiter.callWithPermit(sdkCall);
+        } finally {
+            release(priorityClass);
+        }
+    }
+
+    private synchronized void acquire(Priority priority,
+                                      PriorityClass priorityClass,
+                                      Deadline deadline,
+                                      ConcurrencyLimiter limiter) {
+        if (priorityClass.waiters.isEmpty() && hasFreeSlot(priority, priorityClass, limiter)
+                && (limiter == null || limiter.tryAcquire())) {
+            grant(priorityClass);
+            return;
+        }
+
+        if (priorityClass.waiters.isEmpty()) {
+            // a class that was idle does not get credit for the time it did not use
+            priorityClass.pass = Math.max(priorityClass.pass, virtualTime);
+        }
+        val waiter = new Waiter(limiter);
+        priorityClass.waiters.add(waiter);
+        val queueDeadline = System.nanoTime() + queueTimeoutNanos;
+        val limitedByDeadline = deadline != null && deadline.getNanoTime() - queueDeadline < 0;
+        val waitDeadline = limitedByDeadline ? deadline.getNanoTime() : queueDeadline;
+        try {
+            while (!waiter.granted) {
+                val remaining = waitDeadline - System.nanoTime();
+                if (remaining <= 0) {
+                    priorityClass.waiters.remove(waiter);
+                    priorityClass.rejectedCount.increment();
+                    if (limitedByDeadline) {
+                        throw new DeadlineExceededException();
+                    }
+                    throw new ConcurrencyLimitExceededException(maxInFlight);
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                if (limiter != null) {
+                    limiter.releaseUnused();
+                }
+                release(priorityClass);
+            } else {
+                priorityClass.waiters.remove(waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder()
+                    .message("Interrupted while waiting for a request slot")
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    private synchronized void release(PriorityClass priorityClass) {
+        inFlight--;
+        priorityClass.inFlight--;
+
+        boolean granted = false;
+        while (grantNext()) {
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    // grants a slot to the waiting class with the smallest virtual finish time that may take another one
+    private boolean grantNext() {
+        PriorityClass next = null;
+        for (val entry : classes.entrySet()) {
+            val candidate = entry.getValue();
+            val waiter = candidate.waiters.peek();
+            if (waiter != null && hasFreeSlot(entry.getKey(), candidate, waiter.limiter)
+                    && (next == null || candidate.pass < next.pass)) {
+                next = candidate;
+            }
+        }
+        if (next == null) {
+            return false;
+        }
+        val limiter = next.waiters.peek().limiter;
+        if (limiter != null && !limiter.tryAcquire()) {
+            return false;
+        }
+        next.waiters.poll().granted = true;
+        grant(next);
+        return true;
+    }
+
+    private boolean hasFreeSlot(Priority priority, PriorityClass priorityClass, ConcurrencyLimiter limiter) {
+        if (inFlight >= maxInFlight) {
+            return false;
+        }
+        if (priority != Priority.BULK) {
+            return true;
+        }
+        val maxBulk = limiter == null
+                ? maxBulkInFlight
+                : Math.max(1, Math.min(maxInFlight, limiter.getLimit()) - reservedForInteractive);
+        return priorityClass.inFlight < maxBulk;
+    }
+
+    private void grant(PriorityClass priorityClass) {
+        inFlight++;
+        priorityClass.inFlight++;
+        virtualTime = priorityClass.pass;
+        priorityClass.pass += 1.0 / priorityClass.weight;
+    }
+
+    private static class PriorityClass {
+        private final int weight;
+        private final Queue<Waiter> waiters = new ArrayDeque<>();
+        private int inFlight;
+        private double pass;
+
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rejectedCount = new LongAdder();
+
+        private PriorityClass(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static class Waiter {
+        private final ConcurrencyLimiter limiter;
+        private boolean granted = false;
+
+        private Waiter(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.base.Ticker;
+import lombok.Builder;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Caches results of read-only statements outside of transactions, keyed by database, SQL, mapping options and
+ * parameters.
+ *
+ * Results are kept for the TTL set with {@link Executor#withCacheTtl(Duration)}, or for the default TTL of the cache.
+ * When the estimated size of all cached results exceeds the maximum, the least recently used results are evicted.
+ *
+ * Reads can be tagged with the tables they read ({@link Executor#withTableTags(String...)}). A write executed through
+ * the same client with a matching tag invalidates these results, including results of reads that were in flight
+ * during the write. Writes inside transactions invalidate results both when they are executed and when the transaction
+ * is committed, so results read by other callers before the commit are not kept; transactions that are never committed
+ * or rolled back through the client are forgotten after the 24 hours that RDS Data API lets a transaction run. Changes
+ * made by other clients are only picked up when the TTL expires.
+ */
+public class ResultCache {
+    private final long maxSizeInBytes;
+    private final long defaultTtlNanos;
+    private final Ticker ticker;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByTag = new HashMap<>();
+    private final Map<String, Long> tagVersions = new HashMap<>();
+    private final TransactionTableTags transactionTags;
+    private long sizeInBytes;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    @Builder
+    private ResultCache(long maxSizeInBytes, Duration defaultTtl, Ticker ticker) {
+        checkArgument(maxSizeInBytes > 0, "Maximum size must be positive");
+
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.defaultTtlNanos = defaultTtl.toNanos();
+        this.ticker = ticker;
+        this.transactionTags = new TransactionTableTags(ticker);
+    }
+
+    public static class ResultCacheBuilder {
+        private long maxSizeInBytes = 64 * 1024 * 1024;
+        private Duration defaultTtl = Duration.ZERO; // only statements with a TTL are cached
+        private Ticker ticker = Ticker.systemTicker();
+    }
+
+    /**
+     * @return the number of reads served from the cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of cacheable reads that were sent to RDS Data API
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the share of cacheable reads served from the cache, between 0 and 1
+     */
+    public double getHitRatio() {
+        val hits = hitCount.sum();
+        val total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return the number of results evicted to stay within the maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return the number of results removed by writes with a matching table tag
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * @return the estimated size of all cached results
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return the number of cached results, including expired ones that were not removed yet
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public synchronized void clear() {
+        entries.clear();
+        keysByTag.clear();
+        sizeInBytes = 0;
+    }
+
+    ExecutionResult execute(StatementKey statement, MappingOptions mappingOptions, List<SqlParameter> parameters,
+                            StatementOptions options, Supplier<ExecutionResult> execution) {
+        val ttlNanos = options.getCacheTtl() != null ? options.getCacheTtl().toNanos() : defaultTtlNanos;
+        if (ttlNanos <= 0) {
+            return execution.get();
+        }
+
+        val key = new Key(statement, mappingOptions.useLabelForMapping, mappingOptions.ignoreMissingSetters,
+                new HashSet<>(parameters)); // parameter order does not matter
+        val tags = options.getTableTags();
+        long[] versions;
+        synchronized (this) {
+            val entry = entries.get(key);
+            if (entry != null && entry.getExpiresAt() - ticker.read() > 0) {
+                hitCount.increment();
+                return entry.getResult();
+            }
+            if (entry != null) {
+                remove(key, entry);
+            }
+            versions = currentVersions(tags);
+        }
+
+        missCount.increment();
+        val result = execution.get();
+        val size = result.estimateSizeInBytes();
+        synchronized (this) {
+            // a write with a matching tag may have completed while the statement was executed
+            if (size <= maxSizeInBytes && Arrays.equals(versions, currentVersions(tags))) {
+                put(key, new Entry(result, size, ticker.read() + ttlNanos, tags));
+            }
+        }
+        return result;
+    }
+
+    synchronized void invalidate(Set<String> tags) {
+        for (val tag : tags) {
+            tagVersions.merge(tag, 1L, Long::sum);
+            val keys = keysByTag.remove(tag);
+            if (keys == null) {
+                continue;
+            }
+            for (val key : keys) {
+                val entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                    invalidationCount.increment();
+                }
+            }
+        }
+    }
+
+    void invalidateOnCommit(String transactionId, Set<String> tags) {
+        transactionTags.add(transactionId, tags);
+    }
+
+    // called after a commit, whether it succeeded or not
+    void afterCommit(String transactionId) {
+        invalidate(transactionTags.remove(transactionId));
+    }
+
+    void afterRollback(String transactionId) {
+        transactionTags.remove(transactionId);
+    }
+
+    int getOpenTransactionCount() {
+        return transactionTags.size();
+    }
+
+    private long[] currentVersions(Set<String> tags) {
+        return tags.stream()
+                .mapToLong(tag -> tagVersions.getOrDefault(tag, 0L))
+                .toArray();
+    }
+
+    private void put(Key key, Entry entry) {
+        val previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        entries.put(key, entry);
+        sizeInBytes += entry.getSizeInBytes();
+        for (val tag : entry.getTags()) {
+            keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+        }
+
+        val iterator = entries.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            val eldest = iterator.next();
+            iterator.remove();
+            untrack(eldest.getKey(), eldest.getValue());
+            evictionCount.increment();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        untrack(key, entry);
+    }
+
+    private void untrack(Key key, Entry entry) {
+        sizeInBytes -= entry.getSizeInBytes();
+        for (val tag : entry.getTags()) {
+            val keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    @Value
+    private static class Key {
+        StatementKey statement;
+        boolean useLabelForMapping; // field names of cached results depend on it
+        boolean ignoreMissingSetters;
+        Set<SqlParameter> parameters;
+    }
+
+    @Value
+    private static class Entry {
+        ExecutionResult result;
+        long sizeInBytes;
+        long expiresAt;
+        Set<String> tags;
+    }
+}
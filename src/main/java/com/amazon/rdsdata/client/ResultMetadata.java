@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+// Field names of a result set and the object writers created for them, shared by results of the same statement
+class ResultMetadata {
+    private final List<String> fieldNames;
+    private final ConcurrentMap<Class<?>, ObjectWriter<?>> writers = new ConcurrentHashMap<>();
+
+    ResultMetadata(List<String> fieldNames) {
+        this.fieldNames = unmodifiableList(fieldNames.stream()
+                .map(fieldName -> fieldName == null ? null : fieldName.intern())
+                .collect(toList()));
+    }
+
+    List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    int columnCount() {
+        return fieldNames.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> ObjectWriter<T> writerFor(Class<T> mapperClass, MappingOptions mappingOptions) {
+        val writer = writers.get(mapperClass);
+        if (writer != null) {
+            return (ObjectWriter<T>) writer;
+        }
+        ObjectWriter<T> newWriter = ConstructorObjectWriter.create(mapperClass, fieldNames)
+                .orElseGet(() -> PropertyObjectWriter.create(mapperClass, fieldNames, mappingOptions));
+        writers.putIfAbsent(mapperClass, newWriter);
+        return newWriter;
+    }
+}
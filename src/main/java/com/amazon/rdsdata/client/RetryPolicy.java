@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Retries RDS Data API calls that failed with transient errors, using exponential backoff with full jitter.
+ *
+ * Only calls that can safely be applied twice are retried on any transient error: read-only statements and statements
+ * marked with {@link Executor#asIdempotent()}. Other statements are retried only when the Data API rejected them
+ * before they reached the database (throttling, paused cluster). A communications link failure may interrupt a
+ * statement that was already running, so it is only retried for BeginTransaction, which runs no statement, and
+ * during a resume wait that an earlier rejection started. Statements inside a transaction, commits and rollbacks are
+ * never retried.
+ *
+ * Every retry takes tokens from a budget shared by all calls of the client, and every successful call returns one
+ * token, so retries cannot multiply the load when most calls fail.
+ *
+ * With a non-zero resume timeout, calls that fail because a paused Aurora Serverless cluster is resuming are repeated
+ * with a fixed delay until the cluster is available or the timeout is reached. These waits do not count against the
+ * maximum number of attempts and the retry budget.
+ *
+ * Calls with a deadline (see {@link Executor#withDeadline(java.time.Duration)}) are not retried when the deadline
+ * would pass before the next attempt could be sent.
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final int budgetCapacity;
+    private final int retryCost;
+    private final long resumeTimeoutNanos;
+    private final long resumeDelayNanos;
+
+    private final AtomicInteger availableTokens;
+    private final LongAdder attemptCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder resumeWaitCount = new LongAdder();
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    @Builder
+    private RetryPolicy(int maxAttempts,
+                        Duration baseDelay,
+                        Duration maxDelay,
+                        int budgetCapacity,
+                        int retryCost,
+                        Duration resumeTimeout,
+                        Duration resumeDelay) {
+        checkArgument(maxAttempts > 0, "Number of attempts must be positive");
+        checkArgument(retryCost >= 0 && budgetCapacity >= 0, "Retry budget must not be negative");
+
+        this.maxAttempts = maxAttempts;
+        this.backoff = new Backoff(baseDelay, maxDelay);
+        this.budgetCapacity = budgetCapacity;
+        this.retryCost = retryCost;
+        this.resumeTimeoutNanos = resumeTimeout.toNanos();
+        this.resumeDelayNanos = resumeDelay.toNanos();
+        this.availableTokens = new AtomicInteger(budgetCapacity);
+    }
+
+    public static class RetryPolicyBuilder {
+        private int maxAttempts = 3;
+        private Duration baseDelay = Duration.ofMillis(50);
+        private Duration maxDelay = Duration.ofSeconds(2);
+        private int budgetCapacity = 500;
+        private int retryCost = 5;
+        private Duration resumeTimeout = Duration.ZERO;
+        private Duration resumeDelay = Duration.ofSeconds(5);
+    }
+
+    /**
+     * @return the number of calls sent to RDS Data API, including retries
+     */
+    public long getAttemptCount() {
+        return attemptCount.sum();
+    }
+
+    /**
+     * @return the number of retries after transient errors
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return the number of times a call waited for a paused cluster to resume
+     */
+    public long getResumeWaitCount() {
+        return resumeWaitCount.sum();
+    }
+
+    /**
+     * @return the number of retries that were skipped because the retry budget was exhausted
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+
+    /**
+     * @return the number of tokens currently left in the retry budget
+     */
+    public int getAvailableTokens() {
+        return availableTokens.get();
+    }
+
+    <T> T call(RetryScope scope, Deadline deadline, Supplier<T> sdkCall) {
+        int retries = 0;
+        long resumeDeadline = 0;
+        while (true) {
+            attemptCount.increment();
+            try {
+                val result = sdkCall.get();
+                availableTokens.updateAndGet(tokens -> Math.min(budgetCapacity, tokens + 1));
+                return result;
+            } catch (RuntimeException e) {
+                if (scope == RetryScope.NEVER) {
+                    throw e;
+                }
+
+                if (resumeTimeoutNanos > 0 && isResuming(scope, e, resumeDeadline != 0)) {
+                    val now = System.nanoTime();
+                    if (resumeDeadline == 0) {
+                        resumeDeadline = now + resumeTimeoutNanos;
+                    }
+                    if (now + resumeDelayNanos > resumeDeadline || !hasTimeFor(deadline, resumeDelayNanos)) {
+                        throw e;
+                    }
+                    resumeWaitCount.increment();
+                    Backoff.sleep(resumeDelayNanos, "for the database to resume");
+                    continue;
+                }
+
+                if (!isRetryable(scope, e) || retries + 1 >= maxAttempts) {
+                    throw e;
+                }
+                val delay = backoff.delayNanos(retries + 1);
+                if (!hasTimeFor(deadline, delay)) {
+                    throw e;
+                }
+                if (!tryAcquireTokens()) {
+                    budgetExhaustedCount.increment();
+                    throw e;
+                }
+                retries++;
+                retryCount.increment();
+                Backoff.sleep(delay, "to retry");
+            }
+        }
+    }
+
+    // whether a request can still be sent after waiting for the given time
+    private static boolean hasTimeFor(Deadline deadline, long delayNanos) {
+        return deadline == null || deadline.remainingNanos() - delayNanos >= Deadline.MIN_REQUEST_NANOS;
+    }
+
+    // a non-idempotent statement waits for a resume only once an attempt was rejected because the cluster was resuming
+    private static boolean isResuming(RetryScope scope, RuntimeException e, boolean waitingForResume) {
+        if (scope == RetryScope.IF_NOT_EXECUTED && !waitingForResume) {
+            return SdkErrors.isRejectedBeforeExecution(e) && SdkErrors.isDatabaseResuming(e);
+        }
+        return SdkErrors.isDatabaseResuming(e);
+    }
+
+    private static boolean isRetryable(RetryScope scope, RuntimeException e) {
+        if (scope == RetryScope.ANY_TRANSIENT_ERROR) {
+            return SdkErrors.isTransient(e);
+        } else if (scope == RetryScope.NO_STATEMENT) {
+            return SdkErrors.isRejectedBeforeExecution(e) || SdkErrors.isDatabaseResuming(e);
+        }
+        return SdkErrors.isRejectedBeforeExecution(e);
+    }
+
+    private boolean tryAcquireTokens() {
+        while (true) {
+            val tokens = availableTokens.get();
+            if (tokens < retryCost) {
+                return false;
+            }
+            if (availableTokens.compareAndSet(tokens, tokens - retryCost)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+// Which failures of a call can be retried without the risk of applying it twice
+enum RetryScope {
+    // calls inside a transaction
+    NEVER,
+    // non-idempotent calls: only when the request was rejected before reaching the database
+    IF_NOT_EXECUTED,
+    // calls that run no statement, like BeginTransaction: also when the connection to the database failed
+    NO_STATEMENT,
+    // reads and statements marked as idempotent: any transient failure
+    ANY_TRANSIENT_ERROR
+}
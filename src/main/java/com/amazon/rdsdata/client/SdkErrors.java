@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.InternalServerErrorException;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+import software.amazon.awssdk.services.rdsdata.model.StatementTimeoutException;
+
+import java.util.regex.Pattern;
+
+class SdkErrors {
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final String ERROR_CODE_DATABASE_RESUMING = "DatabaseResumingException";
+    private static final String MESSAGE_COMMUNICATIONS_LINK_FAILURE = "Communications link failure";
+    private static final Pattern REGEX_TRANSACTION_CONFLICT = Pattern.compile(
+            "Deadlock found|deadlock detected|could not serialize access|SQLState: 40001|SQLState: 40P01");
+
+    // Errors that indicate that RDS Data API or the database is overloaded
+    static boolean isOverload(Throwable e) {
+        return e instanceof StatementTimeoutException || isThrottling(e);
+    }
+
+    // Errors after which the request is known not to have reached the database. A communications link failure is not
+    // one of them: the connection may have dropped while the statement was running
+    static boolean isRejectedBeforeExecution(Throwable e) {
+        return isThrottling(e) || hasResumingErrorCode(e);
+    }
+
+    // Errors that are likely to go away when the request is repeated
+    static boolean isTransient(Throwable e) {
+        if (e instanceof AbortedException || e instanceof ApiCallTimeoutException) {
+            return false; // interrupted by the caller or out of time
+        }
+        return isOverload(e)
+                || isDatabaseResuming(e)
+                || e instanceof ServiceUnavailableErrorException
+                || e instanceof InternalServerErrorException
+                || e instanceof SdkClientException;
+    }
+
+    // Aurora Serverless rejects statements with these errors while the paused cluster is resuming
+    static boolean isDatabaseResuming(Throwable e) {
+        return hasResumingErrorCode(e)
+                || e instanceof BadRequestException
+                && e.getMessage() != null
+                && e.getMessage().contains(MESSAGE_COMMUNICATIONS_LINK_FAILURE);
+    }
+
+    private static boolean hasResumingErrorCode(Throwable e) {
+        if (e instanceof AwsServiceException) {
+            val errorDetails = ((AwsServiceException) e).awsErrorDetails();
+            return errorDetails != null && ERROR_CODE_DATABASE_RESUMING.equals(errorDetails.errorCode());
+        }
+        return false;
+    }
+
+    // MySQL and PostgreSQL errors after which the whole transaction can be repeated
+    static boolean isTransactionConflict(Throwable e) {
+        return e instanceof BadRequestException
+                && e.getMessage() != null
+                && REGEX_TRANSACTION_CONFLICT.matcher(e.getMessage()).find();
+    }
+
+    private static boolean isThrottling(Throwable e) {
+        if (e instanceof SdkServiceException) {
+            SdkServiceException serviceException = (SdkServiceException) e;
+            return serviceException.isThrottlingException()
+                    || serviceException.statusCode() == STATUS_TOO_MANY_REQUESTS;
+        }
+        return false;
+    }
+}
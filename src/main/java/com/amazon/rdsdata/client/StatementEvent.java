@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.val;
+
+@Name("com.amazon.rdsdata.Statement")
+@Label("Statement Execution")
+@Description("A call to ExecuteStatement, including retries and hedges")
+@Category("RDS Data API")
+@StackTrace(false)
+class StatementEvent extends Event implements DataApiEvent {
+    @Label("SQL Fingerprint")
+    String sqlFingerprint;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestSize;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseSize;
+
+    @Label("Error")
+    String error;
+
+    static StatementEvent start() {
+        val event = new StatementEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void finish(CallMetrics metrics) {
+        end();
+        if (shouldCommit()) {
+            sqlFingerprint = StatementUtils.fingerprint(metrics.getSql());
+            rows = metrics.getRowCount();
+            requestSize = metrics.getRequestBytes();
+            responseSize = metrics.getResponseBytes();
+            error = metrics.getErrorType();
+            commit();
+        }
+    }
+}
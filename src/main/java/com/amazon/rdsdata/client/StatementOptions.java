@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+import lombok.With;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+
+// Per-statement settings collected by Executor
+@Value
+@With
+class StatementOptions {
+    static StatementOptions DEFAULT = new StatementOptions(false, false, null, Priority.INTERACTIVE, null, emptySet(), false);
+
+    boolean continueAfterTimeout;
+    boolean idempotent;
+    Deadline deadline; // null if the statement has no deadline
+    Priority priority;
+    Duration cacheTtl; // null if the default TTL of the result cache applies
+    Set<String> tableTags;
+    boolean negativeCaching;
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Builder;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link MetricsListener} that keeps statistics per statement shape, similar to <code>pg_stat_statements</code>.
+ * Statements are grouped by a fingerprint of their SQL in which literals and placeholders are replaced with "?".
+ *
+ * The number of tracked statements is bounded. When a new statement arrives and the registry is full, the statement
+ * with the fewest calls is evicted and the new one inherits its call count for future evictions ("space-saving"),
+ * so that rare statements cannot push out frequent ones. Counters are striped and latencies are kept in lock-free
+ * {@link Histogram}s of about 8 KB per statement.
+ *
+ * With a dump interval, the top statements are periodically written to the
+ * <code>com.amazon.rdsdata.client.StatementStatistics</code> logger of <code>java.util.logging</code>.
+ */
+public class StatementStatistics implements MetricsListener, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(StatementStatistics.class.getName());
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-statement-statistics")
+                    .build());
+
+    /**
+     * Values by which {@link #topN(int, SortBy)} orders statements, largest first
+     */
+    public enum SortBy {
+        CALLS(StatementStats::getCalls),
+        ERRORS(StatementStats::getErrors),
+        TOTAL_LATENCY(stats -> stats.getTotalLatency().toNanos()),
+        MEAN_LATENCY(stats -> stats.getMeanLatency().toNanos()),
+        P99_LATENCY(stats -> stats.getP99Latency().toNanos()),
+        ROWS(StatementStats::getRows),
+        BYTES_IN(StatementStats::getBytesIn),
+        BYTES_OUT(StatementStats::getBytesOut),
+        MAPPING_TIME(stats -> stats.getMappingTime().toNanos());
+
+        private final Comparator<StatementStats> order;
+
+        SortBy(ToLongFunction<StatementStats> value) {
+            this.order = Comparator.comparingLong(value).reversed();
+        }
+    }
+
+    private final int maxStatements;
+    private final int dumpSize;
+    private final SortBy dumpOrder;
+    private final ScheduledFuture<?> scheduledDump;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final LongAdder evictionCount = new LongAdder();
+
+    @Builder
+    private StatementStatistics(int maxStatements, Duration dumpInterval, int dumpSize, SortBy dumpOrder) {
+        checkArgument(maxStatements > 0, "Number of statements must be positive");
+        checkArgument(dumpSize > 0, "Dump size must be positive");
+        checkArgument(dumpInterval == null || !dumpInterval.isNegative() && !dumpInterval.isZero(),
+                "Dump interval must be positive");
+
+        this.maxStatements = maxStatements;
+        this.dumpSize = dumpSize;
+        this.dumpOrder = dumpOrder;
+        if (dumpInterval == null) {
+            this.scheduledDump = null;
+        } else {
+            val intervalNanos = dumpInterval.toNanos();
+            this.scheduledDump = SCHEDULER.scheduleWithFixedDelay(this::dump,
+                    intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public static class StatementStatisticsBuilder {
+        private int maxStatements = 1000;
+        private Duration dumpInterval = null; // no periodic dump
+        private int dumpSize = 10;
+        private SortBy dumpOrder = SortBy.TOTAL_LATENCY;
+    }
+
+    @Override
+    public void onCall(CallMetrics metrics) {
+        val entry = entryFor(fingerprintOf(metrics));
+        entry.calls.increment();
+        entry.latency.record(metrics.getDurationNanos());
+        entry.bytesOut.add(metrics.getRequestBytes());
+        if (metrics.getError() != null) {
+            entry.errors.increment();
+        } else {
+            entry.rows.add(metrics.getRowCount());
+            entry.bytesIn.add(metrics.getResponseBytes());
+        }
+    }
+
+    @Override
+    public void onMapping(String sql, Class<?> targetClass, int rowCount, long durationNanos) {
+        if (sql == null) {
+            return;
+        }
+        // results are mapped after the call was recorded, and possibly after the entry was evicted: mapping alone
+        // must not create an entry, or it would evict a statement that is actually being executed
+        val entry = entries.get(fingerprint(sql));
+        if (entry != null) {
+            entry.mappingNanos.add(durationNanos);
+        }
+    }
+
+    /**
+     * @return statistics of all tracked statements, in no particular order
+     */
+    public List<StatementStats> snapshot() {
+        return entries.values().stream()
+                .map(Entry::toStats)
+                .collect(toList());
+    }
+
+    /**
+     * Returns the statements with the largest value of the given statistic
+     * @param n maximum number of statements to return
+     * @param by statistic to order statements by
+     * @return statistics of at most <code>n</code> statements, largest first
+     */
+    public List<StatementStats> topN(int n, SortBy by) {
+        return entries.values().stream()
+                .map(Entry::toStats)
+                .sorted(by.order)
+                .limit(n)
+                .collect(toList());
+    }
+
+    /**
+     * @return the number of tracked statements
+     */
+    public int getStatementCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of statements that were evicted to make room for new ones
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Discards statistics of all statements
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Stops the periodic dump
+     */
+    @Override
+    public void close() {
+        if (scheduledDump != null) {
+            scheduledDump.cancel(false);
+        }
+    }
+
+    void dump() {
+        val top = topN(dumpSize, dumpOrder);
+        if (top.isEmpty()) {
+            return;
+        }
+        val message = new StringBuilder("Top statements by ").append(dumpOrder).append(':');
+        for (val stats : top) {
+            message.append(String.format("%n%10d calls %8d errors %12.3f ms total %10.3f ms mean %10.3f ms p99 %12d rows  %s",
+                    stats.getCalls(), stats.getErrors(), millis(stats.getTotalLatency()),
+                    millis(stats.getMeanLatency()), millis(stats.getP99Latency()), stats.getRows(),
+                    stats.getFingerprint()));
+        }
+        LOGGER.info(message.toString());
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+
+    private String fingerprintOf(CallMetrics metrics) {
+        switch (metrics.getOperation()) {
+            case BEGIN_TRANSACTION:
+                return "BEGIN";
+            case COMMIT_TRANSACTION:
+                return "COMMIT";
+            case ROLLBACK_TRANSACTION:
+                return "ROLLBACK";
+            default:
+                return fingerprint(metrics.getSql());
+        }
+    }
+
+    // statements with inlined literals produce many distinct SQL strings, so the cache is dropped when it grows large
+    private String fingerprint(String sql) {
+        val cached = fingerprints.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        if (fingerprints.size() >= 10 * maxStatements) {
+            fingerprints.clear();
+        }
+        val fingerprint = StatementUtils.fingerprint(sql);
+        fingerprints.put(sql, fingerprint);
+        return fingerprint;
+    }
+
+    private Entry entryFor(String fingerprint) {
+        val entry = entries.get(fingerprint);
+        return entry != null ? entry : addEntry(fingerprint);
+    }
+
+    private synchronized Entry addEntry(String fingerprint) {
+        val existing = entries.get(fingerprint);
+        if (existing != null) {
+            return existing;
+        }
+
+        long inheritedCalls = 0;
+        if (entries.size() >= maxStatements) {
+            Entry evicted = null;
+            for (val entry : entries.values()) {
+                if (evicted == null || entry.weight() < evicted.weight()) {
+                    evicted = entry;
+                }
+            }
+            entries.remove(evicted.fingerprint);
+            evictionCount.increment();
+            inheritedCalls = evicted.weight();
+        }
+        val entry = new Entry(fingerprint, inheritedCalls);
+        entries.put(fingerprint, entry);
+        return entry;
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final long inheritedCalls;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder mappingNanos = new LongAdder();
+        private final Histogram latency = new Histogram();
+
+        Entry(String fingerprint, long inheritedCalls) {
+            this.fingerprint = fingerprint;
+            this.inheritedCalls = inheritedCalls;
+        }
+
+        long weight() {
+            return inheritedCalls + calls.sum();
+        }
+
+        StatementStats toStats() {
+            return new StatementStats(fingerprint,
+                    calls.sum(),
+                    errors.sum(),
+                    Duration.ofNanos(latency.getTotal()),
+                    Duration.ofNanos((long) latency.getMean()),
+                    Duration.ofNanos(latency.getValueAtPercentile(99)),
+                    rows.sum(),
+                    bytesIn.sum(),
+                    bytesOut.sum(),
+                    Duration.ofNanos(mappingNanos.sum()),
+                    inheritedCalls);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Statistics of all executions of one statement shape, as collected by {@link StatementStatistics}.
+ * "Bytes in" are estimated sizes of responses and "bytes out" estimated sizes of requests.
+ */
+@Value
+public class StatementStats {
+    String fingerprint;
+    long calls;
+    long errors;
+    Duration totalLatency;
+    Duration meanLatency;
+    Duration p99Latency;
+    long rows;
+    long bytesIn;
+    long bytesOut;
+    Duration mappingTime;
+    long maxMissedCalls; // calls that may have been counted for evicted statements before this one was added
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+
+import java.util.regex.Pattern;
+
+class StatementUtils {
+    // whitespace or a comment before the first keyword of a statement
+    private static String LEADING_COMMENT = "\\s|--[^\\n]*|/\\*.*?\\*/";
+    // a SELECT, possibly preceded by comments and opening parentheses
+    private static Pattern REGEX_SELECT = Pattern.compile(
+            "^(?:" + LEADING_COMMENT + "|\\()*SELECT\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    // SELECT ... INTO writes a table or variables, locking reads take row locks
+    private static Pattern REGEX_NOT_READ_ONLY = Pattern.compile(
+            "\\b(INTO|FOR\\s+(NO\\s+KEY\\s+)?UPDATE|FOR\\s+(KEY\\s+)?SHARE|LOCK\\s+IN\\s+SHARE\\s+MODE)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static Pattern REGEX_NOT_PAGEABLE = Pattern.compile("\\b(LIMIT|OFFSET|FETCH)\\b", Pattern.CASE_INSENSITIVE);
+    private static Pattern REGEX_BY = Pattern.compile("\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+    private static Pattern REGEX_WRITE = Pattern.compile(
+            "^(?:" + LEADING_COMMENT + ")*(INSERT|UPDATE|DELETE)\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static Pattern REGEX_INSERT = Pattern.compile(
+            "^(?:" + LEADING_COMMENT + ")*INSERT\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static Pattern REGEX_RETURNING = Pattern.compile("\\bRETURNING\\b", Pattern.CASE_INSENSITIVE);
+
+    static boolean isReadOnly(String sql) {
+        return REGEX_SELECT.matcher(sql).find() && !REGEX_NOT_READ_ONLY.matcher(sql).find();
+    }
+
+    // pages of a statement without a deterministic order may overlap or skip rows
+    static boolean isPageable(String sql) {
+        return isReadOnly(sql) && !REGEX_NOT_PAGEABLE.matcher(sql).find() && hasTopLevelOrderBy(sql);
+    }
+
+    // whether the statement itself is ordered, not only a subquery or a window function inside it
+    static boolean hasTopLevelOrderBy(String sql) {
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            val c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+            } else if (sql.startsWith("--", i)) {
+                val end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", i)) {
+                val end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+            } else if (c == '(' || c == ')') {
+                depth += c == '(' ? 1 : -1;
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                val end = skipIdentifier(sql, i);
+                if (depth == 0 && end - i == 5 && sql.regionMatches(true, i, "ORDER", 0, 5)
+                        && REGEX_BY.matcher(sql).region(end, sql.length()).lookingAt()) {
+                    return true;
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    static boolean isWrite(String sql) {
+        return REGEX_WRITE.matcher(sql).find();
+    }
+
+    static boolean isBatchable(String sql) {
+        return REGEX_INSERT.matcher(sql).find() && !REGEX_RETURNING.matcher(sql).find();
+    }
+
+    static String withLimitAndOffset(String sql, int limit, long offset) {
+        return withoutTrailingSemicolonsAndComments(sql) + " LIMIT " + limit + " OFFSET " + offset;
+    }
+
+    // a clause appended after a trailing line comment or semicolon would be commented out or a second statement
+    static String withoutTrailingSemicolonsAndComments(String sql) {
+        int end = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            val c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+                end = i;
+            } else if (sql.startsWith("--", i)) {
+                val lineEnd = sql.indexOf('\n', i);
+                i = lineEnd < 0 ? sql.length() : lineEnd + 1;
+            } else if (sql.startsWith("/*", i)) {
+                val commentEnd = sql.indexOf("*/", i + 2);
+                i = commentEnd < 0 ? sql.length() : commentEnd + 2;
+            } else {
+                i++;
+                if (c != ';' && !Character.isWhitespace(c)) {
+                    end = i;
+                }
+            }
+        }
+        return sql.substring(0, end);
+    }
+
+    // Normalizes SQL so that executions with different literals, placeholder names and list lengths are grouped
+    // together: literals and placeholders become "?", lists of them collapse to a single "?" and whitespace is collapsed
+    static String fingerprint(String sql) {
+        val result = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            val c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                appendPlaceholder(result);
+            } else if (c == '"' || c == '`') {
+                val end = skipQuoted(sql, i, c);
+                result.append(sql, i, end);
+                i = end;
+            } else if (c == '?') {
+                i++;
+                appendPlaceholder(result);
+            } else if (c == ':' && i + 1 < sql.length() && Character.isJavaIdentifierPart(sql.charAt(i + 1))
+                    && (i == 0 || sql.charAt(i - 1) != ':')) {
+                i = skipIdentifier(sql, i + 1);
+                appendPlaceholder(result);
+            } else if (Character.isDigit(c)) {
+                while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendPlaceholder(result);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                val end = skipIdentifier(sql, i);
+                result.append(sql, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                result.append(' ');
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return withoutTrailingSemicolonsAndComments(result.toString().trim());
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                // a doubled quote is an escaped quote
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipIdentifier(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && Character.isJavaIdentifierPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void appendPlaceholder(StringBuilder result) {
+        int end = result.length();
+        while (end > 0 && result.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end > 0 && result.charAt(end - 1) == ',') {
+            end--;
+            while (end > 0 && result.charAt(end - 1) == ' ') {
+                end--;
+            }
+            if (end > 0 && result.charAt(end - 1) == '?') {
+                result.setLength(end);
+                return;
+            }
+        }
+        result.append('?');
+    }
+}
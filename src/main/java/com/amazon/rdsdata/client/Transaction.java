@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * An open transaction. Statements are created with {@link #forSql(String)} and {@link #forSql(String, Object...)}.
+ * Closing a transaction that was neither committed nor rolled back rolls it back, so it can be used in a
+ * try-with-resources statement:
+ *
+ * <pre>
+ * try (Transaction transaction = client.openTransaction()) {
+ *     transaction.forSql("UPDATE accounts SET balance = balance - 10 WHERE id = 1").execute();
+ *     transaction.forSql("UPDATE accounts SET balance = balance + 10 WHERE id = 2").execute();
+ *     transaction.commit();
+ * }
+ * </pre>
+ *
+ * The transaction ID may still be unknown when the handle is returned (see {@link RdsData#beginTransactionAsync()}).
+ * Statements then convert their parameters right away and wait for the ID only before they are sent.
+ */
+public class Transaction implements AutoCloseable {
+    static String ERROR_FINISHED = "Transaction is already committed or rolled back";
+    static String ERROR_REAPED = "Transaction was rolled back because it was open longer than allowed";
+
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-transaction-%d")
+                    .build());
+
+    private final RdsData rdsData;
+    private final CompletableFuture<String> transactionId;
+    private final TransactionManager manager;
+    private final Ticker ticker;
+    private final long startTime;
+    private boolean finished;
+    private boolean reaped;
+
+    Transaction(RdsData rdsData, CompletableFuture<String> transactionId, TransactionManager manager) {
+        this.rdsData = rdsData;
+        this.transactionId = transactionId;
+        this.manager = manager;
+        this.ticker = manager != null ? manager.getTicker() : Ticker.systemTicker();
+        this.startTime = ticker.read();
+        if (manager != null) {
+            manager.register(this);
+        }
+    }
+
+    static Transaction begin(RdsData rdsData, TransactionManager manager) {
+        return new Transaction(rdsData, CompletableFuture.completedFuture(rdsData.beginTransaction()), manager);
+    }
+
+    static Transaction beginAsync(RdsData rdsData, TransactionManager manager) {
+        return new Transaction(rdsData, CompletableFuture.supplyAsync(rdsData::beginTransaction, BACKGROUND), manager);
+    }
+
+    /**
+     * Waits until the transaction has begun
+     * @return transaction ID
+     */
+    public String getTransactionId() {
+        return FutureUtils.await(transactionId, "the transaction to begin");
+    }
+
+    /**
+     * @return a future completed with the transaction ID when the transaction has begun
+     */
+    public CompletableFuture<String> getTransactionIdAsync() {
+        return transactionId;
+    }
+
+    /**
+     * Creates an {@link Executor} for the given SQL that executes it in this transaction
+     * @param sql SQL statement
+     * @return an {@link Executor} instance
+     */
+    public Executor forSql(String sql) {
+        checkActive();
+        return rdsData.forSql(sql).withTransactionId(transactionId);
+    }
+
+    /**
+     * Creates an {@link Executor} for the given SQL with parameters that executes it in this transaction
+     * @param sql SQL statement with placeholders
+     * @param params vararg array with parameters
+     * @return an {@link Executor} instance
+     */
+    public Executor forSql(String sql, Object... params) {
+        checkActive();
+        return rdsData.forSql(sql, params).withTransactionId(transactionId);
+    }
+
+    /**
+     * Commits the transaction. If the commit fails, the transaction is rolled back
+     */
+    public void commit() {
+        startCommit();
+        String id;
+        try {
+            id = getTransactionId();
+        } catch (RuntimeException e) {
+            afterFailedBegin();
+            throw e;
+        }
+        commit(id);
+    }
+
+    /**
+     * Commits the transaction without blocking the calling thread. If the commit fails, the transaction is rolled back
+     * @return a future completed when the transaction is committed
+     */
+    public CompletableFuture<Void> commitAsync() {
+        startCommit();
+        return transactionId
+                .whenComplete((id, beginError) -> {
+                    if (beginError != null) {
+                        afterFailedBegin();
+                    }
+                })
+                .thenAcceptAsync(this::commit, BACKGROUND);
+    }
+
+    /**
+     * Rolls the transaction back
+     */
+    public void rollback() {
+        finish();
+        String id;
+        try {
+            id = getTransactionId();
+        } catch (RuntimeException e) {
+            if (transactionId.isCompletedExceptionally()) {
+                return; // the transaction failed to begin, nothing to roll back
+            }
+            throw e;
+        }
+        rdsData.rollbackTransaction(id);
+    }
+
+    /**
+     * Rolls the transaction back without blocking the calling thread
+     * @return a future completed when the transaction is rolled back
+     */
+    public CompletableFuture<Void> rollbackAsync() {
+        finish();
+        return rollbackIfBegun();
+    }
+
+    /**
+     * Rolls the transaction back unless it was already committed or rolled back
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+        }
+        rollback();
+    }
+
+    /**
+     * @return the time since the transaction was started
+     */
+    public Duration getAge() {
+        return Duration.ofNanos(ticker.read() - startTime);
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Rolls the transaction back if it is still open
+     * @return true if the transaction was rolled back
+     */
+    boolean reap() {
+        synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            reaped = true;
+            unregister();
+        }
+        rollbackIfBegun().exceptionally(e -> null); // RDS Data API rolls the transaction back when it times out
+        return true;
+    }
+
+    // a transaction that failed to begin has nothing to roll back
+    private CompletableFuture<Void> rollbackIfBegun() {
+        return transactionId
+                .handle((id, beginError) -> id)
+                .thenAcceptAsync(id -> {
+                    if (id != null) {
+                        rdsData.rollbackTransaction(id);
+                    }
+                }, BACKGROUND);
+    }
+
+    // the transaction stays registered until the commit succeeded, so that close() and the reaper can still roll it
+    // back; marking it finished keeps both of them from doing so while the commit is running
+    private synchronized void startCommit() {
+        checkActive();
+        finished = true;
+    }
+
+    private void commit(String id) {
+        try {
+            rdsData.commitTransaction(id);
+        } catch (RuntimeException e) {
+            rollbackAfterFailedCommit(id);
+            throw e;
+        }
+        unregister();
+    }
+
+    // a transaction whose commit failed is still open on the server. If it cannot be rolled back either, it is open
+    // again for close() and the reaper
+    private void rollbackAfterFailedCommit(String id) {
+        try {
+            rdsData.rollbackTransaction(id);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                finished = false;
+            }
+            return;
+        }
+        unregister();
+    }
+
+    private void afterFailedBegin() {
+        if (transactionId.isCompletedExceptionally()) {
+            unregister(); // nothing was begun
+        } else {
+            synchronized (this) {
+                finished = false; // interrupted while waiting for the transaction to begin
+            }
+        }
+    }
+
+    private synchronized void finish() {
+        checkActive();
+        finished = true;
+        unregister();
+    }
+
+    private synchronized void checkActive() {
+        checkState(!reaped, ERROR_REAPED);
+        checkState(!finished, ERROR_FINISHED);
+    }
+
+    private void unregister() {
+        if (manager != null) {
+            manager.unregister(this);
+        }
+    }
+}
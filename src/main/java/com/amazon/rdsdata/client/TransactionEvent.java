@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.val;
+
+@Name("com.amazon.rdsdata.Transaction")
+@Label("Transaction")
+@Description("A call to BeginTransaction, CommitTransaction or RollbackTransaction")
+@Category("RDS Data API")
+@StackTrace(false)
+class TransactionEvent extends Event implements DataApiEvent {
+    @Label("Action")
+    String action;
+
+    @Label("Error")
+    String error;
+
+    static TransactionEvent start(CallMetrics.Operation operation) {
+        val event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.action = action(operation);
+        event.begin();
+        return event;
+    }
+
+    private static String action(CallMetrics.Operation operation) {
+        switch (operation) {
+            case BEGIN_TRANSACTION:
+                return "begin";
+            case COMMIT_TRANSACTION:
+                return "commit";
+            default:
+                return "rollback";
+        }
+    }
+
+    @Override
+    public void finish(CallMetrics metrics) {
+        end();
+        if (shouldCommit()) {
+            error = metrics.getErrorType();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Builder;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps track of transactions opened with {@link RdsData#openTransaction()} and {@link RdsData#inTransaction}.
+ *
+ * With a maximum age, a background thread rolls back transactions that stay open longer than that, so that a
+ * forgotten commit does not hold locks until RDS Data API times the transaction out. Units of work passed to
+ * {@link RdsData#inTransaction} are repeated up to <code>maxAttempts</code> times when they fail because of a
+ * deadlock or a serialization failure, with exponential backoff and jitter.
+ */
+public class TransactionManager {
+    private final Duration maxAge;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final Ticker ticker;
+    private final ScheduledExecutorService reaper;
+
+    private final Set<Transaction> openTransactions = ConcurrentHashMap.newKeySet();
+    private final LongAdder openedCount = new LongAdder();
+    private final LongAdder reapedCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+
+    @Builder
+    private TransactionManager(Duration maxAge,
+                               Duration reaperInterval,
+                               int maxAttempts,
+                               Duration baseDelay,
+                               Duration maxDelay,
+                               Ticker ticker) {
+        checkArgument(maxAttempts > 0, "Number of attempts must be positive");
+
+        this.maxAge = maxAge;
+        this.maxAttempts = maxAttempts;
+        this.backoff = new Backoff(baseDelay, maxDelay);
+        this.ticker = ticker;
+        if (maxAge != null) {
+            this.reaper = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("rds-data-transaction-reaper-%d")
+                            .build());
+            val interval = reaperInterval.toNanos();
+            reaper.scheduleWithFixedDelay(this::reapExpiredTransactions, interval, interval, TimeUnit.NANOSECONDS);
+        } else {
+            this.reaper = null;
+        }
+    }
+
+    public static class TransactionManagerBuilder {
+        private Duration maxAge = null; // no reaper
+        private Duration reaperInterval = Duration.ofSeconds(1);
+        private int maxAttempts = 1; // no retries
+        private Duration baseDelay = Duration.ofMillis(20);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        private Ticker ticker = Ticker.systemTicker();
+    }
+
+    /**
+     * @return the number of transactions that are currently open
+     */
+    public int getOpenTransactionCount() {
+        return openTransactions.size();
+    }
+
+    /**
+     * @return the age of the oldest open transaction, or {@link Duration#ZERO} if there are none
+     */
+    public Duration getOldestTransactionAge() {
+        return openTransactions.stream()
+                .map(Transaction::getAge)
+                .max(Duration::compareTo)
+                .orElse(Duration.ZERO);
+    }
+
+    /**
+     * @return the number of transactions opened so far
+     */
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+    /**
+     * @return the number of transactions rolled back because they were open longer than the maximum age
+     */
+    public long getReapedCount() {
+        return reapedCount.sum();
+    }
+
+    /**
+     * @return the number of units of work that were repeated after a deadlock or a serialization failure
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Stops the background thread that rolls back old transactions
+     */
+    public void shutdown() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+    }
+
+    Ticker getTicker() {
+        return ticker;
+    }
+
+    void register(Transaction transaction) {
+        openedCount.increment();
+        openTransactions.add(transaction);
+    }
+
+    void unregister(Transaction transaction) {
+        openTransactions.remove(transaction);
+    }
+
+    void reapExpiredTransactions() {
+        for (val transaction : openTransactions) {
+            if (transaction.getAge().compareTo(maxAge) > 0 && transaction.reap()) {
+                reapedCount.increment();
+            }
+        }
+    }
+
+    <T> T call(Supplier<T> unitOfWork) {
+        int attempt = 1;
+        while (true) {
+            try {
+                return unitOfWork.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !SdkErrors.isTransactionConflict(e)) {
+                    throw e;
+                }
+                retryCount.increment();
+                Backoff.sleep(backoff.delayNanos(attempt), "to repeat the transaction");
+                attempt++;
+            }
+        }
+    }
+}
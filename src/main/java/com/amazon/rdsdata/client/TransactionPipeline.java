@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.val;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Executes the statements of one transaction in order, without making the caller wait for each of them.
+ *
+ * Parameters are converted on the calling thread, while a background thread sends the statements one after another
+ * as soon as the previous one completes, so preparing the next statement overlaps with the call in flight. RDS Data
+ * API runs the statements of a transaction one at a time, so they are never sent concurrently. The background threads
+ * are shared by all pipelines and only busy while a pipeline has statements to send.
+ *
+ * Writes tagged with {@link #withTableTags(String...)} invalidate cached results like writes of
+ * {@link Executor#withTableTags(String...)}, both when they are sent and when the transaction is committed.
+ *
+ * The first failure aborts the pipeline: the transaction is rolled back, statements submitted afterwards complete
+ * with {@link PipelineAbortedException}, and so does {@link #commit()}. Cancelling the future of a statement that was
+ * not sent yet aborts the pipeline the same way. Closing a pipeline that was not committed rolls the transaction back.
+ * A finished or aborted pipeline holds no thread, so it does not need to be closed.
+ */
+public class TransactionPipeline implements AutoCloseable {
+    static String ERROR_FINISHED = "Transaction is already committed or rolled back";
+
+    private static final ExecutorService SENDERS = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-pipeline-%d")
+                    .build());
+
+    private final RdsData rdsData;
+    // runs the tasks of this pipeline one after another on the shared threads
+    private final java.util.concurrent.Executor sender = MoreExecutors.newSequentialExecutor(SENDERS);
+
+    // accessed only by the tasks of the sender
+    private String transactionId;
+    private Throwable failure;
+    private boolean rolledBack;
+
+    private volatile boolean finished;
+    private volatile StatementOptions options = StatementOptions.DEFAULT;
+
+    TransactionPipeline(RdsData rdsData) {
+        this.rdsData = rdsData;
+        sender.execute(() -> {
+            try {
+                transactionId = rdsData.beginTransaction();
+            } catch (RuntimeException e) {
+                failure = e;
+                rolledBack = true; // nothing to roll back
+            }
+        });
+    }
+
+    /**
+     * Tags the statements submitted afterwards with the tables they write, so that they invalidate cached results
+     * @param tableTags names of the tables
+     * @return a reference to this object so that method calls can be chained
+     */
+    public TransactionPipeline withTableTags(String... tableTags) {
+        this.options = options.withTableTags(new HashSet<>(asList(tableTags)));
+        return this;
+    }
+
+    /**
+     * Submits a statement without parameters
+     * @param sql SQL statement
+     * @return a future completed with the result of the statement
+     */
+    public CompletableFuture<ExecutionResult> submit(String sql) {
+        return submit(sql, null);
+    }
+
+    /**
+     * Submits a statement
+     * @param sql SQL statement
+     * @param paramSet object which fields will be used as a source for parameters, or a {@link java.util.Map}
+     * @return a future completed with the result of the statement
+     */
+    public CompletableFuture<ExecutionResult> submit(String sql, Object paramSet) {
+        checkState(!finished, ERROR_FINISHED);
+
+        Map<String, Object> params = paramSet == null ? emptyMap() : Executor.toMap(sql, paramSet);
+        val statement = new EncodedStatement(sql, rdsData.encodeParameters(sql, params), options);
+        val future = new CompletableFuture<ExecutionResult>();
+        sender.execute(() -> {
+            if (failure != null) {
+                future.completeExceptionally(new PipelineAbortedException(failure));
+                return;
+            }
+            if (future.isCancelled()) {
+                abort(new CancellationException("Statement was cancelled before it was sent"));
+                return;
+            }
+            try {
+                future.complete(rdsData.executeStatement(transactionId, statement));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                abort(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Commits the transaction after all submitted statements were executed
+     * @return a future completed when the transaction is committed
+     */
+    public CompletableFuture<Void> commit() {
+        return finish(() -> {
+            if (failure != null) {
+                throw new PipelineAbortedException(failure);
+            }
+            rdsData.commitTransaction(transactionId);
+        });
+    }
+
+    /**
+     * Rolls the transaction back after all submitted statements were executed
+     * @return a future completed when the transaction is rolled back
+     */
+    public CompletableFuture<Void> rollback() {
+        return finish(this::rollbackIfNeeded);
+    }
+
+    /**
+     * Rolls the transaction back unless it was committed or rolled back
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            FutureUtils.await(rollback(), "the transaction to be rolled back");
+        }
+    }
+
+    private CompletableFuture<Void> finish(Runnable action) {
+        checkState(!finished, ERROR_FINISHED);
+        finished = true;
+
+        val future = new CompletableFuture<Void>();
+        sender.execute(() -> {
+            try {
+                action.run();
+                future.complete(null);
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void abort(Throwable e) {
+        failure = e;
+        try {
+            rollbackIfNeeded();
+        } catch (RuntimeException rollbackError) {
+            e.addSuppressed(rollbackError);
+        }
+    }
+
+    private void rollbackIfNeeded() {
+        if (!rolledBack) {
+            rolledBack = true;
+            rdsData.rollbackTransaction(transactionId);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.base.Ticker;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.emptySet;
+
+/**
+ * Table tags of the writes executed in open transactions, so that caches can be invalidated again when the
+ * transaction commits and its changes become visible to other readers.
+ *
+ * Transactions that are never committed or rolled back through the client are forgotten once they are older than RDS
+ * Data API lets a transaction run.
+ */
+class TransactionTableTags {
+    // RDS Data API ends transactions that run for longer
+    static final long MAX_TRANSACTION_NANOS = Duration.ofHours(24).toNanos();
+    static final long SWEEP_INTERVAL_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final Ticker ticker;
+    private final ConcurrentMap<String, Tags> tagsByTransaction = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep;
+
+    TransactionTableTags(Ticker ticker) {
+        this.ticker = ticker;
+        this.lastSweep = new AtomicLong(ticker.read());
+    }
+
+    void add(String transactionId, Set<String> tags) {
+        val now = ticker.read();
+        tagsByTransaction.computeIfAbsent(transactionId, id -> new Tags(now)).tags.addAll(tags);
+        removeExpired(now);
+    }
+
+    Set<String> remove(String transactionId) {
+        val tags = tagsByTransaction.remove(transactionId);
+        return tags == null ? emptySet() : tags.tags;
+    }
+
+    int size() {
+        return tagsByTransaction.size();
+    }
+
+    private void removeExpired(long now) {
+        val previousSweep = lastSweep.get();
+        if (now - previousSweep < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(previousSweep, now)) {
+            return;
+        }
+        tagsByTransaction.values().removeIf(tags -> now - tags.startTime > MAX_TRANSACTION_NANOS);
+    }
+
+    private static class Tags {
+        private final long startTime;
+        private final Set<String> tags = ConcurrentHashMap.newKeySet();
+
+        Tags(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.val;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Merges concurrent INSERT statements with one parameter set, outside of transactions, of the same SQL into one
+ * BatchExecuteStatement call. UPDATE and DELETE statements are not batched, since their callers usually depend on the
+ * number of updated records, which BatchExecuteStatement does not report per parameter set.
+ *
+ * The first caller opens a batch and waits up to <code>maxDelay</code> for other callers with the same SQL; the batch
+ * is sent when the delay has passed or <code>maxBatchSize</code> rows were collected, and every caller returns when it
+ * completes. A batch costs three calls (begin, batch and commit), so a batch that is neither full nor collected at
+ * least <code>minBatchSize</code> rows is not sent: every caller sends its own row as a regular ExecuteStatement call
+ * instead, in parallel on its own thread.
+ *
+ * Batches are sent inside a transaction. BatchExecuteStatement does not report which parameter set failed, so when a
+ * batch fails the transaction is rolled back and every caller sends its own row again: each caller receives the
+ * outcome of its own row, and one bad row does not fail the others. If the rollback fails as well, the rows are not
+ * sent again, since the open transaction may still hold their locks, and every caller receives the error of the batch.
+ * Results of batched writes report an unknown (<code>null</code>) number of updated records.
+ */
+public class WriteBatcher {
+    // completes the members that must send their own row
+    private static final ExecutionResult SEND_ALONE =
+            new ExecutionResult(emptyList(), emptyList(), null, MappingOptions.DEFAULT);
+
+    private final GroupingWindow<Key, Write> window;
+    private final int minBatchSize; // a full batch is sent even if it is smaller
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder batchedRowCount = new LongAdder();
+    private final LongAdder failedBatchCount = new LongAdder();
+
+    @Builder
+    private WriteBatcher(int minBatchSize, int maxBatchSize, Duration maxDelay) {
+        checkArgument(minBatchSize > 1, "Minimum batch size must be greater than one");
+        checkArgument(maxBatchSize > 0, "Batch size must be positive");
+        checkArgument(!maxDelay.isNegative(), "Delay must not be negative");
+
+        this.window = new GroupingWindow<>(maxBatchSize, maxDelay.toNanos());
+        this.minBatchSize = Math.max(2, Math.min(minBatchSize, maxBatchSize));
+    }
+
+    public static class WriteBatcherBuilder {
+        private int minBatchSize = 4;
+        private int maxBatchSize = 100;
+        private Duration maxDelay = Duration.ofMillis(5);
+    }
+
+    /**
+     * @return the number of batches of merged writes that were committed
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return the number of writes that were committed as part of a batch
+     */
+    public long getBatchedRowCount() {
+        return batchedRowCount.sum();
+    }
+
+    /**
+     * @return the number of batches that failed and whose writes were sent again one by one
+     */
+    public long getFailedBatchCount() {
+        return failedBatchCount.sum();
+    }
+
+    ExecutionResult execute(RdsData rdsData,
+                            StatementKey statement,
+                            StatementOptions options,
+                            List<SqlParameter> parameters,
+                            Supplier<ExecutionResult> singleExecution,
+                            BatchExecution batchExecution) {
+        // the deadline differs between callers, so it must not keep their writes apart
+        val key = new Key(statement, options.withDeadline(null));
+        val write = new Write(parameters, options.getDeadline());
+        val result = window.execute(key, write, options.getDeadline(), members -> {
+            if (members.size() < minBatchSize) {
+                members.forEach(member -> member.getResult().complete(SEND_ALONE));
+                return;
+            }
+
+            val parameterSets = members.stream()
+                    .map(member -> member.getItem().getParameters())
+                    .collect(toList());
+            val transactionId = rdsData.beginTransaction();
+            ExecutionResult batchResult;
+            try {
+                batchResult = batchExecution.execute(transactionId, parameterSets, earliestDeadline(members));
+            } catch (RuntimeException e) {
+                failedBatchCount.increment();
+                if (!rollback(rdsData, transactionId)) {
+                    throw e;
+                }
+                members.forEach(member -> member.getResult().complete(SEND_ALONE));
+                return;
+            }
+
+            rdsData.commitTransaction(transactionId);
+            batchCount.increment();
+            batchedRowCount.add(members.size());
+            members.forEach(member -> member.getResult().complete(batchResult));
+        });
+        return result == SEND_ALONE ? singleExecution.get() : result;
+    }
+
+    private static boolean rollback(RdsData rdsData, String transactionId) {
+        try {
+            rdsData.rollbackTransaction(transactionId);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // the batch must complete before any of its callers gives up
+    private static Deadline earliestDeadline(List<GroupingWindow.Member<Write>> members) {
+        Deadline earliest = null;
+        for (val member : members) {
+            val deadline = member.getItem().getDeadline();
+            if (deadline != null && (earliest == null || deadline.getNanoTime() - earliest.getNanoTime() < 0)) {
+                earliest = deadline;
+            }
+        }
+        return earliest;
+    }
+
+    interface BatchExecution {
+        ExecutionResult execute(String transactionId, List<List<SqlParameter>> parameterSets, Deadline deadline);
+    }
+
+    @Value
+    private static class Key {
+        StatementKey statement;
+        StatementOptions options; // without the deadline
+    }
+
+    @Value
+    private static class Write {
+        List<SqlParameter> parameters;
+        Deadline deadline;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Buffers writes by key and executes them later in batches. Writes with the same key that are buffered at the same
+ * time are combined into one: by default the last write wins, and a merge function can combine them differently, for
+ * example by summing deltas.
+ *
+ * The buffer is flushed when it holds <code>flushSize</code> keys, when its oldest write is older than
+ * <code>maxAge</code>, on {@link #flush()} and on {@link #close()}. Flushes run one at a time on a background thread.
+ * Keys that are buffered, being flushed or waiting for a retry count against <code>maxBufferedKeys</code>; when the
+ * limit is reached, writes of new keys wait until a flush completes.
+ *
+ * Writes of a failed flush are kept as they were sent and retried by the next flush, ahead of and separately from
+ * newer writes of the same keys, so a retry never merges a failed write into a newer one. Failures of background
+ * flushes are passed to the error handler, which logs them by default, while {@link #flush()} and {@link #close()}
+ * throw them.
+ */
+@RequiredArgsConstructor
+public class WriteBehindWriter<K, V> implements AutoCloseable {
+    static String ERROR_CLOSED = "Writer is closed";
+
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindWriter.class.getName());
+
+    private final RdsData rdsData;
+    private final String sql;
+    private final Function<V, K> keyFunction;
+    private BinaryOperator<V> mergeFunction = (older, newer) -> newer;
+    private int flushSize = 100;
+    private int maxBufferedKeys = 10_000;
+    private Duration maxAge = Duration.ofSeconds(1);
+    private Consumer<RuntimeException> errorHandler = e ->
+            LOGGER.log(Level.WARNING, "Background flush failed, its writes are retried by the next flush", e);
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("rds-data-write-behind-%d")
+                    .build());
+    private Map<K, V> buffer = new LinkedHashMap<>();
+    private List<Map.Entry<K, V>> failed = new ArrayList<>();
+    private int flushingKeyCount;
+    private long nextFlushTime = Long.MAX_VALUE;
+    private volatile boolean closed;
+
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder failedFlushCount = new LongAdder();
+
+    /**
+     * Sets the function that combines a buffered write with a newer write of the same key
+     * @param mergeFunction function of the older and the newer value
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public WriteBehindWriter<K, V> withMergeFunction(BinaryOperator<V> mergeFunction) {
+        this.mergeFunction = mergeFunction;
+        return this;
+    }
+
+    /**
+     * Sets the number of buffered keys that triggers a flush. It is also the maximum size of a batch
+     * @param flushSize number of keys
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public WriteBehindWriter<K, V> withFlushSize(int flushSize) {
+        checkArgument(flushSize > 0, "Flush size must be positive");
+        this.flushSize = flushSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of buffered keys at which writes of new keys wait for a flush
+     * @param maxBufferedKeys number of keys
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public WriteBehindWriter<K, V> withMaxBufferedKeys(int maxBufferedKeys) {
+        checkArgument(maxBufferedKeys > 0, "Buffer size must be positive");
+        this.maxBufferedKeys = maxBufferedKeys;
+        return this;
+    }
+
+    /**
+     * Sets how long a write may stay in the buffer
+     * @param maxAge maximum age
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public WriteBehindWriter<K, V> withMaxAge(Duration maxAge) {
+        checkArgument(!maxAge.isNegative(), "Age must not be negative");
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * Sets the handler of exceptions thrown by background flushes. By default they are logged as warnings to the
+     * <code>com.amazon.rdsdata.client.WriteBehindWriter</code> logger of <code>java.util.logging</code>
+     * @param errorHandler error handler
+     * @return a reference to this object so that method calls can be chained together
+     */
+    public WriteBehindWriter<K, V> withErrorHandler(Consumer<RuntimeException> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * Adds a write to the buffer. Waits if the buffer is full and does not contain the key yet
+     * @param value object which fields will be used as a source for parameters
+     * @throws IllegalStateException if the writer is closed, also while waiting for the buffer to be flushed
+     */
+    public void write(V value) {
+        val key = keyFunction.apply(value);
+
+        synchronized (this) {
+            checkState(!closed, ERROR_CLOSED);
+            while (heldKeyCount() >= maxBufferedKeys && !buffer.containsKey(key)) {
+                scheduleFlush(0);
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw AbortedException.builder()
+                            .message("Interrupted while waiting for the buffer to be flushed")
+                            .cause(e)
+                            .build();
+                }
+                checkState(!closed, ERROR_CLOSED);
+            }
+
+            writeCount.increment();
+            buffer.merge(key, value, mergeFunction);
+            if (buffer.size() >= flushSize) {
+                scheduleFlush(0);
+            } else if (buffer.size() == 1) {
+                scheduleFlush(maxAge.toNanos());
+            }
+        }
+    }
+
+    /**
+     * Executes all buffered writes and waits for them to complete
+     */
+    public void flush() {
+        try {
+            FutureUtils.await(flusher.submit(this::flushBuffer), "the buffer to be flushed");
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException(ERROR_CLOSED, e);
+        }
+    }
+
+    /**
+     * Flushes the buffer and stops the background thread. Writes are not accepted after the writer is closed
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // writers waiting for room are rejected
+            notifyAll();
+        }
+        try {
+            flush();
+        } finally {
+            flusher.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of writes added to the buffer
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * @return the number of combined writes that were executed
+     */
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    /**
+     * @return the number of flushes that failed
+     */
+    public long getFailedFlushCount() {
+        return failedFlushCount.sum();
+    }
+
+    /**
+     * @return the number of keys currently in the buffer, including the keys of failed writes waiting for a retry
+     */
+    public synchronized int getBufferedKeyCount() {
+        return buffer.size() + failed.size();
+    }
+
+    // must be called while holding the lock
+    private int heldKeyCount() {
+        return buffer.size() + failed.size() + flushingKeyCount;
+    }
+
+    // must be called while holding the lock
+    private void scheduleFlush(long delayNanos) {
+        val flushTime = System.nanoTime() + delayNanos;
+        if (flushTime < nextFlushTime) {
+            nextFlushTime = flushTime;
+            flusher.schedule(this::flushInBackground, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flushBuffer();
+        } catch (RuntimeException e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private Void flushBuffer() {
+        List<Map.Entry<K, V>> entries;
+        synchronized (this) {
+            nextFlushTime = Long.MAX_VALUE;
+            if (buffer.isEmpty() && failed.isEmpty()) {
+                return null;
+            }
+            // failed writes go first, as they are older than the buffered writes of the same keys
+            entries = failed;
+            entries.addAll(buffer.entrySet());
+            failed = new ArrayList<>();
+            buffer = new LinkedHashMap<>();
+            flushingKeyCount = entries.size();
+        }
+
+        for (int from = 0; from < entries.size(); from += flushSize) {
+            val chunk = entries.subList(from, Math.min(entries.size(), from + flushSize));
+            try {
+                execute(chunk);
+                flushedCount.add(chunk.size());
+                flushed(chunk.size());
+            } catch (RuntimeException e) {
+                failedFlushCount.increment();
+                putBack(entries.subList(from, entries.size()));
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void flushed(int keyCount) {
+        flushingKeyCount -= keyCount;
+        notifyAll();
+    }
+
+    private void execute(List<Map.Entry<K, V>> entries) {
+        val paramSets = new ArrayList<Object>(entries.size());
+        entries.forEach(entry -> paramSets.add(entry.getValue()));
+        rdsData.forSql(sql)
+                .withParamSets(paramSets)
+                .execute();
+    }
+
+    private synchronized void putBack(List<Map.Entry<K, V>> entries) {
+        // kept as sent rather than merged into newer writes, so that a retry repeats exactly the failed parameter
+        // sets; the keys stay counted against the buffer limit
+        failed.addAll(entries);
+        flushingKeyCount = 0;
+        if (!closed) {
+            scheduleFlush(maxAge.toNanos());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.booleanField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.doubleField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the bytes allocated per mapped row and per encoded parameter set with the budgets in
+ * allocation-baselines.properties. Runs in the separate allocationTest task, see build.gradle.
+ */
+@Tag("allocation")
+public class AllocationRegressionTests extends TestBase {
+    private static final String BASELINES = "/allocation-baselines.properties";
+    private static final String SELECT = "SELECT id, customer, amount, paid, created FROM orders";
+    private static final String INSERT = "INSERT INTO orders (id, customer, amount, paid, created) "
+            + "VALUES (:id, :customer, :amount, :paid, :created)";
+    private static final int ROWS = 100;
+    private static final int WARMUP_RUNS = 500;
+    private static final int MEASURED_RUNS = 100;
+    private static final int ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static Properties baselines;
+
+    private Object sink;
+
+    @BeforeAll
+    static void loadBaselines() throws IOException {
+        val bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported(),
+                "Thread allocation counters are not supported by this JVM");
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        baselines = new Properties();
+        try (val input = AllocationRegressionTests.class.getResourceAsStream(BASELINES)) {
+            baselines.load(input);
+        }
+    }
+
+    @BeforeEach
+    void mockOrders() {
+        val records = IntStream.range(0, ROWS)
+                .mapToObj(i -> asList(
+                        longField(i),
+                        stringField("customer-" + i),
+                        doubleField(i * 1.5),
+                        booleanField(i % 2 == 0),
+                        stringField("2020-01-01 10:00:00")))
+                .collect(toList());
+        val metadata = asList("id", "customer", "amount", "paid", "created").stream()
+                .map(name -> ColumnMetadata.builder().name(name).build())
+                .collect(toList());
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenReturn(ExecuteStatementResponse.builder()
+                        .columnMetadata(metadata)
+                        .records(records)
+                        .build());
+    }
+
+    @Test
+    void mappingWithConstructor() {
+        val result = client.forSql(SELECT).execute();
+        assertWithinBaseline("mapping.constructor.bytesPerRow", ROWS, () -> result.mapToList(ConstructorOrder.class));
+    }
+
+    @Test
+    void mappingWithSetters() {
+        val result = client.forSql(SELECT).execute();
+        assertWithinBaseline("mapping.setter.bytesPerRow", ROWS, () -> result.mapToList(SetterOrder.class));
+    }
+
+    @Test
+    void mappingWithFields() {
+        val result = client.forSql(SELECT).execute();
+        assertWithinBaseline("mapping.field.bytesPerRow", ROWS, () -> result.mapToList(FieldOrder.class));
+    }
+
+    @Test
+    void parameterEncoding() {
+        val order = new Order(1, "customer-1", 1.5, true, LocalDateTime.of(2020, 1, 1, 10, 0));
+        assertWithinBaseline("encoding.bytesPerParameterSet", 1,
+                () -> client.encodeParameters(INSERT, Executor.toMap(INSERT, order)));
+    }
+
+    private void assertWithinBaseline(String key, int unitsPerRun, Supplier<?> run) {
+        val baseline = Long.parseLong(baselines.getProperty(key));
+        val tolerance = Double.parseDouble(baselines.getProperty("tolerance"));
+        val allocated = allocatedBytesPerUnit(unitsPerRun, run);
+
+        assertThat(allocated)
+                .withFailMessage("%s: %.0f bytes allocated, baseline is %d bytes with %.0f%% tolerance; "
+                                + "update %s if the increase is expected",
+                        key, allocated, baseline, tolerance * 100, BASELINES)
+                .isLessThanOrEqualTo(baseline * (1 + tolerance));
+    }
+
+    // the lowest of several rounds after warm-up, so that the JIT compiler and class loading do not add noise
+    private double allocatedBytesPerUnit(int unitsPerRun, Supplier<?> run) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            sink = run.get();
+        }
+
+        double lowest = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            val before = allocatedBytes();
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                sink = run.get();
+            }
+            lowest = Math.min(lowest, (double) (allocatedBytes() - before) / (MEASURED_RUNS * unitsPerRun));
+        }
+        return lowest;
+    }
+
+    private static long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Value
+    private static class Order {
+        long id;
+        String customer;
+        double amount;
+        boolean paid;
+        LocalDateTime created;
+    }
+
+    @AllArgsConstructor
+    private static class ConstructorOrder {
+        private final long id;
+        private final String customer;
+        private final double amount;
+        private final boolean paid;
+        private final LocalDateTime created;
+    }
+
+    @NoArgsConstructor
+    @Setter
+    private static class SetterOrder {
+        private long id;
+        private String customer;
+        private double amount;
+        private boolean paid;
+        private LocalDateTime created;
+    }
+
+    @NoArgsConstructor
+    private static class FieldOrder {
+        public long id;
+        public String customer;
+        public double amount;
+        public boolean paid;
+        public LocalDateTime created;
+    }
+}
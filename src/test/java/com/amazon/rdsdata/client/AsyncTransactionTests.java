@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionResponse;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncTransactionTests extends TestBase {
+    @Test
+    void shouldReturnBeforeTransactionHasBegun() {
+        val begin = new CountDownLatch(1);
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class))).thenAnswer(invocation -> {
+            begin.await();
+            return BeginTransactionResponse.builder().transactionId("tx").build();
+        });
+        mockReturnValue();
+
+        val transaction = client.beginTransactionAsync();
+        assertThat(transaction.getTransactionIdAsync()).isNotDone();
+        val executor = transaction.forSql("UPDATE t SET a = :a").withParameter("a", 1);
+        begin.countDown();
+        executor.execute();
+        transaction.commitAsync().join();
+
+        assertThat(captureRequest().transactionId()).isEqualTo("tx");
+        val captor = ArgumentCaptor.forClass(CommitTransactionRequest.class);
+        verify(sdkClient).commitTransaction(captor.capture());
+        assertThat(captor.getValue().transactionId()).isEqualTo("tx");
+    }
+
+    @Test
+    void shouldEncodeParametersBeforeTransactionHasBegun() throws Exception {
+        val begin = new CountDownLatch(1);
+        val encoded = new CountDownLatch(1);
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class))).thenAnswer(invocation -> {
+            begin.await();
+            return BeginTransactionResponse.builder().transactionId("tx").build();
+        });
+        mockReturnValue();
+        val listeningClient = clientBuilder()
+                .metricsListener(new MetricsListener() {
+                    @Override
+                    public void onParameterEncoding(String sql, int parameterSetCount, long durationNanos) {
+                        encoded.countDown();
+                    }
+                })
+                .build();
+
+        val transaction = listeningClient.beginTransactionAsync();
+        val execution = CompletableFuture.runAsync(() ->
+                transaction.forSql("UPDATE t SET a = :a").withParameter("a", 1).execute());
+        assertThat(encoded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(transaction.getTransactionIdAsync()).isNotDone();
+        begin.countDown();
+        execution.get(5, TimeUnit.SECONDS);
+
+        assertThat(captureRequest().transactionId()).isEqualTo("tx");
+    }
+
+    @Test
+    void shouldFailStatementsWhenTransactionFailsToBegin() {
+        val error = ServiceUnavailableErrorException.builder().build();
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class))).thenThrow(error);
+
+        try (val transaction = client.beginTransactionAsync()) {
+            assertThatThrownBy(() -> transaction.forSql("UPDATE t SET a = 1").execute()).isSameAs(error);
+        }
+
+        verify(sdkClient, never()).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRollBackWithoutBlocking() {
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class)))
+                .thenReturn(BeginTransactionResponse.builder().transactionId("tx").build());
+
+        client.beginTransactionAsync().rollbackAsync().join();
+
+        val captor = ArgumentCaptor.forClass(RollbackTransactionRequest.class);
+        verify(sdkClient).rollbackTransaction(captor.capture());
+        assertThat(captor.getValue().transactionId()).isEqualTo("tx");
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockColumn;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchLoaderTests extends TestBase {
+    private static final String SQL = "SELECT * FROM users WHERE id IN (:keys)";
+
+    @Test
+    void shouldLoadKeysWithOneQueryPaddedToBucketSize() {
+        mockUsers();
+        val loader = loader();
+
+        val first = loader.load(1L);
+        val second = loader.load(2L);
+        val missing = loader.load(3L);
+        loader.dispatch();
+
+        assertThat(first.join()).isEqualTo(new User(1, "alice"));
+        assertThat(second.join()).isEqualTo(new User(2, "bob"));
+        assertThat(missing.join()).isNull();
+        val request = captureRequest();
+        assertThat(request.sql()).isEqualTo("SELECT * FROM users WHERE id IN (:keys0, :keys1, :keys2, :keys3)");
+        assertThat(request.parameters()).hasSize(4);
+    }
+
+    @Test
+    void shouldDeduplicateAndCacheKeys() {
+        mockUsers();
+        val loader = loader();
+
+        val first = loader.load(1L);
+        val duplicate = loader.load(1L);
+        loader.dispatch();
+        loader.load(1L).join();
+
+        assertThat(duplicate).isSameAs(first);
+        assertThat(loader.getCacheHitCount()).isEqualTo(2);
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldDispatchWhenLargestBucketIsFull() {
+        mockUsers();
+        val loader = loader().withBucketSizes(1, 2);
+
+        val users = loader.loadAll(asList(1L, 2L, 3L));
+        assertThat(loader.getQueryCount()).isEqualTo(1);
+        loader.dispatch();
+
+        assertThat(users.join()).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(loader.getQueryCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDispatchAfterDelay() {
+        mockUsers();
+        val loader = client.forBatchLoader(SQL, "id", Long.class, User.class)
+                .withMaxDelay(Duration.ofMillis(1));
+
+        assertThat(loader.load(2L).join()).isEqualTo(new User(2, "bob"));
+    }
+
+    @Test
+    void shouldNotCacheFailedLoads() {
+        val error = BadRequestException.builder().build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenThrow(error);
+        val loader = loader();
+
+        val failed = loader.load(1L);
+        loader.dispatch();
+
+        assertThatThrownBy(failed::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseReference(error);
+        assertThat(loader.load(1L)).isNotSameAs(failed);
+    }
+
+    @Test
+    void shouldNotLoadCancelledKeys() {
+        val loader = loader();
+
+        loader.load(1L).cancel(false);
+        loader.dispatch();
+
+        assertThat(loader.getQueryCount()).isZero();
+        assertThat(loader.load(1L)).isNotCancelled();
+    }
+
+    @Test
+    void shouldRequireKeysPlaceholderAsWholeWord() {
+        assertThatThrownBy(() -> client.forBatchLoader("SELECT * FROM users WHERE id IN (:keyset)", "id", Long.class, User.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BatchLoader<Long, User> loader() {
+        return client.forBatchLoader(SQL, "id", Long.class, User.class)
+                .withMaxDelay(Duration.ofMinutes(1))
+                .withExecutorService(MoreExecutors.newDirectExecutorService());
+    }
+
+    private void mockUsers() {
+        mockReturnValues(
+                ImmutableList.of(mockColumn("id", longField(2L)), mockColumn("name", stringField("bob"))),
+                ImmutableList.of(mockColumn("id", longField(1L)), mockColumn("name", stringField("alice"))));
+    }
+
+    @Value
+    private static class User {
+        public final long id;
+        public final String name;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.StatementTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimiterTests extends TestBase {
+    @Test
+    void shouldDecreaseLimitWhenThrottled() {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(10)
+                .backoffRatio(0.5)
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(StatementTimeoutException.builder().build());
+
+        assertThatThrownBy(() -> client.forSql("SELECT 1").execute())
+                .isInstanceOf(StatementTimeoutException.class);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldReleasePermitWhenCallThrowsError() {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(2)
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(new AssertionError("unexpected call"));
+
+        assertThatThrownBy(() -> client.forSql("SELECT 1").execute())
+                .isInstanceOf(AssertionError.class);
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIncreaseLimitWhenSaturated() {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        mockReturnValue();
+
+        client.forSql("SELECT 1").execute();
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldWrapTransactionCalls() {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        mockBeginTransaction(sdkClient, "tx");
+
+        client.beginTransaction();
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFailFastWhenLimitIsReached() throws Exception {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .queueTimeout(Duration.ZERO)
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        val release = new CountDownLatch(1);
+        val blockedCall = blockFirstCall(release);
+
+        assertThatThrownBy(() -> client.forSql("SELECT 2").execute())
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        blockedCall.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldQueueCallersUntilPermitIsReleased() throws Exception {
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .queueTimeout(Duration.ofSeconds(5))
+                .build();
+        client = clientBuilder().concurrencyLimiter(limiter).build();
+        val release = new CountDownLatch(1);
+        val blockedCall = blockFirstCall(release);
+
+        val queuedCall = CompletableFuture.runAsync(() -> client.forSql("SELECT 2").execute());
+        while (limiter.getQueueLength() == 0) {
+            Thread.sleep(1);
+        }
+        assertThat(queuedCall).isNotDone();
+
+        release.countDown();
+        blockedCall.get(5, TimeUnit.SECONDS);
+        queuedCall.get(5, TimeUnit.SECONDS);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private CompletableFuture<Void> blockFirstCall(CountDownLatch release) throws InterruptedException {
+        val started = new CountDownLatch(1);
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            started.countDown();
+            if (invocation.<ExecuteStatementRequest>getArgument(0).sql().equals("SELECT 1")) {
+                release.await();
+            }
+            return ExecuteStatementResponse.builder().build();
+        });
+        val blockedCall = CompletableFuture.runAsync(() -> client.forSql("SELECT 1").execute());
+        started.await();
+        return blockedCall;
+    }
+}
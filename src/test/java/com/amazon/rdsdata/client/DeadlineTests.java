@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionResponse;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeadlineTests extends TestBase {
+    @Test
+    void shouldSetApiCallTimeoutFromRemainingTime() {
+        mockReturnValue();
+
+        client.forSql("SELECT 1").withDeadline(Duration.ofSeconds(5)).execute();
+
+        val apiCallTimeout = captureRequest().overrideConfiguration().get().apiCallTimeout().get();
+        assertThat(apiCallTimeout).isLessThanOrEqualTo(Duration.ofSeconds(5));
+        assertThat(apiCallTimeout).isGreaterThan(Duration.ofSeconds(4));
+    }
+
+    @Test
+    void shouldNotSendRequestWhenDeadlineHasPassed() {
+        assertThatThrownBy(() -> client.forSql("SELECT 1").withDeadline(Instant.now().minusSeconds(1)).execute())
+                .isInstanceOf(DeadlineExceededException.class);
+
+        verify(sdkClient, never()).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldStopRetryingWhenDeadlineIsNear() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(ServiceUnavailableErrorException.builder().build());
+        val retryingClient = clientBuilder()
+                .retryPolicy(RetryPolicy.builder()
+                        .maxAttempts(Integer.MAX_VALUE)
+                        .baseDelay(Duration.ofMillis(5))
+                        .maxDelay(Duration.ofMillis(5))
+                        .build())
+                .build();
+
+        // without the deadline the call would be retried forever
+        assertThatThrownBy(() -> retryingClient.forSql("SELECT 1").withDeadline(Duration.ofMillis(100)).execute())
+                .isInstanceOfAny(ServiceUnavailableErrorException.class, DeadlineExceededException.class);
+    }
+
+    @Test
+    void shouldStopWaitingForPermitAtDeadline() throws Exception {
+        val limitedClient = clientBuilder()
+                .concurrencyLimiter(ConcurrencyLimiter.builder()
+                        .initialLimit(1)
+                        .maxLimit(1)
+                        .queueTimeout(Duration.ofMinutes(1))
+                        .build())
+                .build();
+        val started = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return ExecuteStatementResponse.builder().build();
+        });
+        val blockedCall = CompletableFuture.runAsync(() -> limitedClient.forSql("SELECT 1").execute());
+        started.await();
+
+        assertThatThrownBy(() -> limitedClient.forSql("SELECT 2").withDeadline(Duration.ofMillis(50)).execute())
+                .isInstanceOf(DeadlineExceededException.class);
+
+        release.countDown();
+        blockedCall.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldStopWaitingForCoalescedCallAtDeadline() throws Exception {
+        val coalescer = new RequestCoalescer();
+        val coalescingClient = clientBuilder()
+                .requestCoalescer(coalescer)
+                .build();
+        val started = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return ExecuteStatementResponse.builder().build();
+        });
+        val slowCall = CompletableFuture.runAsync(() -> coalescingClient.forSql("SELECT 1").execute());
+        started.await();
+
+        assertThatThrownBy(() -> coalescingClient.forSql("SELECT 1").withDeadline(Duration.ofMillis(50)).execute())
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(1);
+
+        release.countDown();
+        slowCall.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldStopWaitingForTransactionToBeginAtDeadline() {
+        val begin = new CountDownLatch(1);
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class))).thenAnswer(invocation -> {
+            begin.await();
+            return BeginTransactionResponse.builder().transactionId("tx").build();
+        });
+
+        val transaction = client.beginTransactionAsync();
+        assertThatThrownBy(() -> transaction.forSql("UPDATE t SET a = 1").withDeadline(Duration.ofMillis(50)).execute())
+                .isInstanceOf(DeadlineExceededException.class);
+
+        begin.countDown();
+        transaction.rollbackAsync().join();
+    }
+}
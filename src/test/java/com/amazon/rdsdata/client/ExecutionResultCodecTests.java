@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.blobField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.booleanField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.doubleField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.nullField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExecutionResultCodecTests {
+    @Test
+    void shouldRoundTripAllValueTypes() {
+        val result = result(
+                asList(longField(1), stringField("alice"), doubleField(1.5), booleanField(true), blobField(new byte[] { 1, 2 })),
+                asList(longField(-300), stringField("bob \u2603"), nullField(), booleanField(false), nullField()));
+
+        val decoded = ExecutionResultCodec.decode(ExecutionResultCodec.encode(result));
+
+        assertThat(decoded.mapToList(Row.class)).isEqualTo(result.mapToList(Row.class));
+        assertThat(decoded.mapToSingle(Row.class).data).containsExactly(1, 2);
+        assertThat(decoded.singleValue(Long.class)).isEqualTo(1L);
+        assertThat(decoded.getNumberOfRecordsUpdated()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldWriteToAndReadFromStreams() throws Exception {
+        val result = result(asList(longField(Long.MIN_VALUE), stringField(""), doubleField(-0.0), booleanField(true), nullField()));
+        val out = new ByteArrayOutputStream();
+
+        ExecutionResultCodec.write(result, out);
+        val decoded = ExecutionResultCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(decoded.mapToList(Row.class)).isEqualTo(result.mapToList(Row.class));
+    }
+
+    @Test
+    void shouldTagValuesOfColumnsWithDifferentTypes() {
+        val result = new ExecutionResult(columns("value"),
+                asList(asList(longField(42)), asList(stringField("42")), asList(nullField())),
+                null,
+                MappingOptions.DEFAULT);
+
+        val decoded = ExecutionResultCodec.decode(ExecutionResultCodec.encode(result));
+
+        assertThat(decoded.getColumnFields(0)).containsExactly(longField(42), stringField("42"), nullField());
+        assertThat(decoded.getNumberOfRecordsUpdated()).isNull();
+    }
+
+    @Test
+    void shouldEncodeValuesCompactly() {
+        val result = result(asList(longField(1), stringField("alice"), doubleField(1.5), booleanField(true), nullField()));
+
+        val encoded = ExecutionResultCodec.encode(result);
+
+        // version, records updated, names with their count, column count, types, row count, null bitmap, values
+        assertThat(encoded.remaining()).isEqualTo(1 + 2 + (1 + 26) + 1 + 5 + 1 + 1 + (1 + 6 + 8 + 1));
+    }
+
+    @Test
+    void shouldRejectUnknownVersionAndTruncatedInput() {
+        val encoded = ExecutionResultCodec.encode(result(asList(longField(1), stringField("alice"), nullField(), nullField(), nullField())));
+        val truncated = ByteBuffer.wrap(encoded.array(), 0, encoded.remaining() - 3);
+
+        assertThatThrownBy(() -> ExecutionResultCodec.decode(ByteBuffer.wrap(new byte[] { 99 })))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(ExecutionResultCodec.ERROR_UNSUPPORTED_VERSION + 99);
+        assertThatThrownBy(() -> ExecutionResultCodec.decode(truncated))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(ExecutionResultCodec.ERROR_TRUNCATED);
+    }
+
+    @Test
+    void shouldKeepMissingFieldNamesApartFromEmptyOnes() {
+        val result = new ExecutionResult(asList(ColumnMetadata.builder().build(), ColumnMetadata.builder().name("").build()),
+                asList(asList(longField(1), longField(2))),
+                null,
+                MappingOptions.DEFAULT);
+
+        val decoded = ExecutionResultCodec.decode(ExecutionResultCodec.encode(result));
+
+        assertThat(decoded.getFieldNames()).containsExactly(null, "");
+    }
+
+    @Test
+    void shouldDecodePreviousVersion() {
+        // version 1, no records updated, one name "x", one long column, one row with the value 5
+        val encoded = ByteBuffer.wrap(new byte[] { 1, 0, 1, 1, 'x', 1, 2, 1, 0, 10 });
+
+        val decoded = ExecutionResultCodec.decode(encoded);
+
+        assertThat(decoded.getFieldNames()).containsExactly("x");
+        assertThat(decoded.singleValue(Long.class)).isEqualTo(5L);
+    }
+
+    @Test
+    void shouldRejectColumnCountLargerThanInputBeforeAllocating() {
+        // version, no records updated, no names, a column count of Integer.MAX_VALUE
+        val encoded = ByteBuffer.wrap(new byte[] { ExecutionResultCodec.VERSION, 0, 0, -1, -1, -1, -1, 7 });
+
+        assertThatThrownBy(() -> ExecutionResultCodec.decode(encoded))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(ExecutionResultCodec.ERROR_TRUNCATED);
+    }
+
+    @SafeVarargs
+    private static ExecutionResult result(List<Field>... rows) {
+        return new ExecutionResult(columns("id", "name", "score", "active", "data"),
+                asList(rows),
+                2L,
+                MappingOptions.DEFAULT);
+    }
+
+    private static List<ColumnMetadata> columns(String... names) {
+        return asList(names).stream()
+                .map(name -> ColumnMetadata.builder().name(name).build())
+                .collect(toList());
+    }
+
+    @Value
+    private static class Row {
+        public final Long id;
+        public final String name;
+        public final Double score;
+        public final Boolean active;
+        public final byte[] data;
+    }
+}
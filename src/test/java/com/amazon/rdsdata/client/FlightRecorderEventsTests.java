@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import com.google.common.collect.ImmutableList;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockColumn;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class FlightRecorderEventsTests extends TestBase {
+    private final Recording recording = new Recording();
+
+    @BeforeEach
+    void startRecording() {
+        recording.enable("com.amazon.rdsdata.Statement");
+        recording.enable("com.amazon.rdsdata.Batch");
+        recording.enable("com.amazon.rdsdata.Transaction");
+        recording.enable("com.amazon.rdsdata.Mapping");
+        recording.start();
+    }
+
+    @AfterEach
+    void closeRecording() {
+        recording.close();
+    }
+
+    @Test
+    void shouldRecordStatementAndMapping() throws Exception {
+        mockReturnValues(
+                ImmutableList.of(mockColumn("id", longField(1L)), mockColumn("name", stringField("alice"))),
+                ImmutableList.of(mockColumn("id", longField(2L)), mockColumn("name", stringField("bob"))));
+
+        client.forSql("SELECT * FROM users WHERE id IN (?, ?)", 1, 2).execute().mapToList(User.class);
+
+        val events = recordedEvents();
+        val statement = single(events, "com.amazon.rdsdata.Statement");
+        assertThat(statement.getString("sqlFingerprint")).isEqualTo("SELECT * FROM users WHERE id IN (?)");
+        assertThat(statement.getInt("rows")).isEqualTo(2);
+        assertThat(statement.getLong("responseSize")).isPositive();
+        assertThat(statement.getString("error")).isNull();
+        val mapping = single(events, "com.amazon.rdsdata.Mapping");
+        assertThat(mapping.getClass("targetClass").getName()).isEqualTo(User.class.getName());
+        assertThat(mapping.getInt("rows")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRecordErrorsAndBatches() throws Exception {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(BadRequestException.builder().build());
+
+        assertThatThrownBy(() -> client.forSql("UPDATE users SET name = 'x' WHERE id = 1").execute())
+                .isInstanceOf(BadRequestException.class);
+        client.forSql("INSERT INTO users (id) VALUES (:id)")
+                .withParamSets(new User(1, null), new User(2, null), new User(3, null))
+                .execute();
+
+        val events = recordedEvents();
+        val statement = single(events, "com.amazon.rdsdata.Statement");
+        assertThat(statement.getString("sqlFingerprint")).isEqualTo("UPDATE users SET name = ? WHERE id = ?");
+        assertThat(statement.getString("error")).isEqualTo("BadRequestException");
+        val batch = single(events, "com.amazon.rdsdata.Batch");
+        assertThat(batch.getInt("parameterSets")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRecordTransactionLifecycle() throws Exception {
+        mockBeginTransaction(sdkClient, "tx");
+
+        client.commitTransaction(client.beginTransaction());
+        client.rollbackTransaction(client.beginTransaction());
+
+        val actions = named(recordedEvents(), "com.amazon.rdsdata.Transaction").stream()
+                .map(event -> event.getString("action"))
+                .collect(toList());
+        assertThat(actions).containsExactly("begin", "commit", "begin", "rollback");
+    }
+
+    @Test
+    void shouldNormalizeSqlFingerprints() {
+        assertThat(StatementUtils.fingerprint("SELECT *\n  FROM t1 WHERE a = 'it''s' AND b IN (1, 2.5, :c) LIMIT 10;"))
+                .isEqualTo("SELECT * FROM t1 WHERE a = ? AND b IN (?) LIMIT ?");
+        assertThat(StatementUtils.fingerprint("SELECT \"Col 1\", x::int FROM t WHERE id IN (:keys0, :keys1, :keys2)"))
+                .isEqualTo("SELECT \"Col 1\", x::int FROM t WHERE id IN (?)");
+    }
+
+    private List<RecordedEvent> recordedEvents() throws Exception {
+        recording.stop();
+        Path file = Files.createTempFile("rds-data", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(toList());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        val matching = named(events, name);
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+
+    @Value
+    private static class User {
+        public final long id;
+        public final String name;
+    }
+}
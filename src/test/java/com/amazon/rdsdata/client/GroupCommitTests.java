@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionResponse;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GroupCommitTests extends TestBase {
+    private static final BadRequestException DUPLICATE_KEY = BadRequestException.builder().message("Duplicate entry").build();
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    private final GroupCommitter committer = GroupCommitter.builder()
+            .maxGroupSize(2)
+            .maxDelay(Duration.ofSeconds(10))
+            .build();
+
+    @AfterEach
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldCommitConcurrentWritesTogether() throws Exception {
+        mockStatements();
+        val groupingClient = clientBuilder().groupCommitter(committer).build();
+
+        val first = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (1)").execute());
+        val second = executorService.submit(() -> groupingClient.forSql("UPDATE t SET a = 2").execute());
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, times(2)).executeStatement(captor.capture());
+        assertThat(captor.getAllValues()).extracting(ExecuteStatementRequest::transactionId).containsOnly("tx");
+        verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+        assertThat(committer.getCommitCount()).isEqualTo(1);
+        assertThat(committer.getGroupedStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRollBackAndExecuteIndividuallyWhenStatementFails() throws Exception {
+        mockStatements();
+        val groupingClient = clientBuilder().groupCommitter(committer).build();
+
+        val failing = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (0)").execute());
+        val succeeding = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (1)").execute());
+
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseReference(DUPLICATE_KEY);
+        succeeding.get(5, TimeUnit.SECONDS);
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        verify(sdkClient, never()).commitTransaction(any(CommitTransactionRequest.class));
+        assertThat(committer.getRollbackCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFailGroupWithoutExecutingIndividuallyWhenRollbackFails() throws Exception {
+        mockStatements();
+        val rollbackError = BadRequestException.builder().message("Connection lost").build();
+        when(sdkClient.rollbackTransaction(any(RollbackTransactionRequest.class))).thenThrow(rollbackError);
+        val groupingClient = clientBuilder().groupCommitter(committer).build();
+
+        val failing = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (0)").execute());
+        val other = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (1)").execute());
+
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseReference(DUPLICATE_KEY);
+        assertThatThrownBy(() -> other.get(5, TimeUnit.SECONDS)).hasCauseReference(DUPLICATE_KEY);
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        assertThat(captor.getAllValues()).extracting(ExecuteStatementRequest::transactionId).containsOnly("tx");
+    }
+
+    @Test
+    void shouldExecuteStatementsWhileWaitingForMoreOfThem() throws Exception {
+        mockStatements();
+        val groupingClient = clientBuilder().groupCommitter(GroupCommitter.builder()
+                .maxGroupSize(3)
+                .maxDelay(Duration.ofSeconds(10))
+                .build()).build();
+
+        val first = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (1)").execute());
+        val second = executorService.submit(() -> groupingClient.forSql("INSERT INTO t VALUES (2)").execute());
+        verify(sdkClient, timeout(5000).times(2)).executeStatement(any(ExecuteStatementRequest.class));
+        verify(sdkClient, never()).commitTransaction(any(CommitTransactionRequest.class));
+
+        groupingClient.forSql("INSERT INTO t VALUES (3)").execute();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        verify(sdkClient, times(1)).beginTransaction(any(BeginTransactionRequest.class));
+        verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+    }
+
+    @Test
+    void shouldExecuteSingleStatementWithoutTransaction() {
+        mockStatements();
+        val groupingClient = clientBuilder().groupCommitter(GroupCommitter.builder()
+                .maxDelay(Duration.ofMillis(1))
+                .build()).build();
+
+        groupingClient.forSql("INSERT INTO t VALUES (1)").execute();
+        groupingClient.forSql("SELECT 1").execute();
+        groupingClient.forSql("INSERT INTO t VALUES (1)").withTransactionId("other").execute();
+
+        verify(sdkClient, never()).beginTransaction(any(BeginTransactionRequest.class));
+    }
+
+    private void mockStatements() {
+        mockBeginTransaction(sdkClient, "tx");
+        when(sdkClient.commitTransaction(any(CommitTransactionRequest.class)))
+                .thenReturn(CommitTransactionResponse.builder().build());
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val request = invocation.<ExecuteStatementRequest>getArgument(0);
+            if (request.sql().contains("(0)")) {
+                throw DUPLICATE_KEY;
+            }
+            return ExecuteStatementResponse.builder().numberOfRecordsUpdated(1L).build();
+        });
+    }
+}
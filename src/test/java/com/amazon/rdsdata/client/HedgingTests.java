@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HedgingTests extends TestBase {
+    private final CountDownLatch primaryInterrupted = new CountDownLatch(1);
+
+    @Test
+    void shouldSendHedgeWhenResponseIsSlow() throws Exception {
+        val policy = hedgingPolicy().build();
+        mockSlowFirstResponse();
+
+        val result = clientBuilder().hedgingPolicy(policy).build()
+                .forSql("SELECT 1").execute().singleValue(Long.class);
+
+        assertThat(result).isEqualTo(2L);
+        assertThat(policy.getHedgeCount()).isEqualTo(1);
+        assertThat(policy.getHedgeWinCount()).isEqualTo(1);
+        assertThat(primaryInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void shouldSendFirstRequestFromCallersThread() {
+        val policy = hedgingPolicy()
+                .delay(Duration.ofSeconds(5))
+                .build();
+        val requestThread = new AtomicReference<Thread>();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            requestThread.set(Thread.currentThread());
+            return ExecuteStatementResponse.builder().build();
+        });
+
+        clientBuilder().hedgingPolicy(policy).build()
+                .forSql("SELECT 1").execute();
+
+        assertThat(requestThread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void shouldNotSendHedgeWhenResponseIsFast() {
+        val policy = hedgingPolicy()
+                .delay(Duration.ofSeconds(5))
+                .build();
+        mockReturnValue();
+
+        clientBuilder().hedgingPolicy(policy).build()
+                .forSql("SELECT 1").execute();
+
+        assertThat(policy.getHedgeCount()).isZero();
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldNotHedgeWritesOrTransactions() {
+        val policy = hedgingPolicy()
+                .delay(Duration.ZERO)
+                .build();
+        mockReturnValue();
+
+        val hedgingClient = clientBuilder().hedgingPolicy(policy).build();
+        hedgingClient.forSql("INSERT INTO t VALUES (1)").execute();
+        hedgingClient.forSql("SELECT 1").withTransactionId("tx").execute();
+
+        assertThat(policy.getRequestCount()).isZero();
+    }
+
+    @Test
+    void shouldCapHedgeRatio() {
+        val policy = hedgingPolicy()
+                .delay(Duration.ZERO)
+                .maxHedgeRatio(0.5)
+                .build();
+        mockReturnValue();
+
+        val hedgingClient = clientBuilder().hedgingPolicy(policy).build();
+        for (int i = 0; i < 4; i++) {
+            hedgingClient.forSql("SELECT 1").execute();
+        }
+
+        assertThat(policy.getHedgeCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldUsePercentileOfRecentLatencies() {
+        val policy = hedgingPolicy()
+                .percentile(95)
+                .latencyWindow(100)
+                .build();
+
+        // the delay is recomputed every 50 samples; after 120 samples the window holds latencies of 21..120 ms
+        for (int i = 1; i <= 120; i++) {
+            policy.recordLatency(Duration.ofMillis(i).toNanos());
+        }
+
+        assertThat(policy.getCurrentDelay()).isEqualTo(Duration.ofMillis(115));
+    }
+
+    private void mockSlowFirstResponse() {
+        val calls = new AtomicInteger();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val call = calls.incrementAndGet();
+            if (call == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    primaryInterrupted.countDown();
+                    throw AbortedException.builder().cause(e).build(); // like the SDK
+                }
+            }
+            return ExecuteStatementResponse.builder()
+                    .columnMetadata(ColumnMetadata.builder().name("value").build())
+                    .records(singletonList(singletonList(longField(call))))
+                    .build();
+        });
+    }
+
+    private static HedgingPolicy.HedgingPolicyBuilder hedgingPolicy() {
+        return HedgingPolicy.builder()
+                .delay(Duration.ofMillis(10))
+                .maxHedgeRatio(1);
+    }
+}
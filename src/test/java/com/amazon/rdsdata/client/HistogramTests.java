@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class HistogramTests {
+    @Test
+    void shouldCountSmallValuesExactly() {
+        val histogram = new Histogram();
+        IntStream.rangeClosed(1, 20).forEach(histogram::record);
+
+        assertThat(histogram.getCount()).isEqualTo(20);
+        assertThat(histogram.getTotal()).isEqualTo(210);
+        assertThat(histogram.getMean()).isEqualTo(10.5);
+        assertThat(histogram.getMax()).isEqualTo(20);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(10);
+        assertThat(histogram.getValueAtPercentile(95)).isEqualTo(19);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(20);
+    }
+
+    @Test
+    void shouldReportLargeValuesWithBoundedRelativeError() {
+        val histogram = new Histogram();
+        for (long value = 1_000; value <= 1_000_000; value += 1_000) {
+            histogram.record(value * 1_000);
+        }
+
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(500_000_000, within(35_000_000.0));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(990_000_000, within(70_000_000.0));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1_000_000_000);
+    }
+
+    @Test
+    void shouldMapEveryValueIntoBucketThatContainsIt() {
+        long[] values = { 0, 31, 32, 33, 34, 63, 64, 1000, 1L << 40, Long.MAX_VALUE };
+        for (val value : values) {
+            val bucket = Histogram.bucketIndex(value);
+            assertThat(Histogram.highestValueIn(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0) {
+                assertThat(Histogram.highestValueIn(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    void shouldReturnZeroWhenEmpty() {
+        val histogram = new Histogram();
+
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+        assertThat(histogram.getMean()).isZero();
+    }
+}
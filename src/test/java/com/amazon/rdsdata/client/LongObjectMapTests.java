@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectMapTests {
+    @Test
+    void shouldStoreAndFindKeys() {
+        val map = new LongObjectMap<String>(1000);
+        for (long key = -500; key < 500; key++) {
+            map.put(key * 1024, "value" + key);
+        }
+
+        assertThat(map.size()).isEqualTo(1000);
+        for (long key = -500; key < 500; key++) {
+            assertThat(map.get(key * 1024)).isEqualTo("value" + key);
+        }
+        assertThat(map.get(1)).isNull();
+        assertThat(map.get(Long.MIN_VALUE)).isNull();
+    }
+
+    @Test
+    void shouldReplaceValueOfExistingKey() {
+        val map = new LongObjectMap<String>(1);
+
+        map.put(7, "first");
+        map.put(7, "second");
+
+        assertThat(map.get(7)).isEqualTo("second");
+        assertThat(map.size()).isEqualTo(1);
+    }
+}
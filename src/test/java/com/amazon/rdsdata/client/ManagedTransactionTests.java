@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.FakeTicker;
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
+
+import java.time.Duration;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ManagedTransactionTests extends TestBase {
+    private static final RuntimeException DEADLOCK = BadRequestException.builder()
+            .message("Deadlock found when trying to get lock; try restarting transaction")
+            .build();
+
+    private TransactionManager manager;
+
+    @BeforeEach
+    void mockTransaction() {
+        mockBeginTransaction(sdkClient, "tx");
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void shouldCommitUnitOfWork() {
+        mockReturnValue(1L);
+
+        val updated = client.inTransaction(transaction ->
+                transaction.forSql("UPDATE t SET a = 1").execute().getNumberOfRecordsUpdated());
+
+        assertThat(updated).isEqualTo(1L);
+        assertThat(captureRequest().transactionId()).isEqualTo("tx");
+        verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+        verify(sdkClient, never()).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRollBackWhenUnitOfWorkFails() {
+        val error = new IllegalStateException();
+
+        assertThatThrownBy(() -> client.runInTransaction(transaction -> {
+            throw error;
+        })).isSameAs(error);
+
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        verify(sdkClient, never()).commitTransaction(any(CommitTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRepeatUnitOfWorkAfterDeadlock() {
+        manager = TransactionManager.builder()
+                .maxAttempts(3)
+                .baseDelay(Duration.ofMillis(1))
+                .build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(DEADLOCK)
+                .thenReturn(ExecuteStatementResponse.builder().build());
+
+        clientBuilder().transactionManager(manager).build()
+                .runInTransaction(transaction -> transaction.forSql("UPDATE t SET a = 1").execute());
+
+        verify(sdkClient, times(2)).beginTransaction(any(BeginTransactionRequest.class));
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+        assertThat(manager.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRepeatUnitOfWorkAfterOtherErrors() {
+        manager = TransactionManager.builder()
+                .maxAttempts(3)
+                .build();
+        val error = BadRequestException.builder().message("Duplicate entry").build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenThrow(error);
+
+        assertThatThrownBy(() -> clientBuilder().transactionManager(manager).build()
+                .runInTransaction(transaction -> transaction.forSql("INSERT INTO t VALUES (1)").execute()))
+                .isSameAs(error);
+        assertThat(manager.getRetryCount()).isZero();
+    }
+
+    @Test
+    void shouldTrackOpenTransactions() {
+        val ticker = new FakeTicker();
+        manager = TransactionManager.builder().ticker(ticker).build();
+        val managedClient = clientBuilder().transactionManager(manager).build();
+
+        try (val ignored = managedClient.openTransaction()) {
+            ticker.advance(Duration.ofMillis(2));
+            assertThat(manager.getOpenTransactionCount()).isEqualTo(1);
+            assertThat(manager.getOldestTransactionAge()).isEqualTo(Duration.ofMillis(2));
+        }
+
+        assertThat(manager.getOpenTransactionCount()).isZero();
+        assertThat(manager.getOpenedCount()).isEqualTo(1);
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRollBackTransactionWhenCommitFails() {
+        manager = TransactionManager.builder().build();
+        val error = BadRequestException.builder().message("Transaction is not found").build();
+        when(sdkClient.commitTransaction(any(CommitTransactionRequest.class))).thenThrow(error);
+
+        val transaction = clientBuilder().transactionManager(manager).build()
+                .openTransaction();
+        assertThat(manager.getOpenTransactionCount()).isEqualTo(1);
+        assertThatThrownBy(transaction::commit).isSameAs(error);
+
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        assertThat(manager.getOpenTransactionCount()).isZero();
+    }
+
+    @Test
+    void shouldKeepTransactionOpenWhenFailedCommitCannotBeRolledBack() {
+        manager = TransactionManager.builder().build();
+        when(sdkClient.commitTransaction(any(CommitTransactionRequest.class)))
+                .thenThrow(BadRequestException.builder().build());
+        when(sdkClient.rollbackTransaction(any(RollbackTransactionRequest.class)))
+                .thenThrow(BadRequestException.builder().build())
+                .thenReturn(null);
+
+        val transaction = clientBuilder().transactionManager(manager).build()
+                .openTransaction();
+        assertThatThrownBy(transaction::commit).isInstanceOf(BadRequestException.class);
+        assertThat(manager.getOpenTransactionCount()).isEqualTo(1);
+
+        transaction.close();
+        verify(sdkClient, times(2)).rollbackTransaction(any(RollbackTransactionRequest.class));
+        assertThat(manager.getOpenTransactionCount()).isZero();
+    }
+
+    @Test
+    void shouldRollBackTransactionsOlderThanMaxAge() {
+        val ticker = new FakeTicker();
+        manager = TransactionManager.builder()
+                .maxAge(Duration.ofMillis(1))
+                .reaperInterval(Duration.ofHours(1)) // reaped by the test
+                .ticker(ticker)
+                .build();
+
+        val transaction = clientBuilder().transactionManager(manager).build()
+                .openTransaction();
+        manager.reapExpiredTransactions();
+        assertThat(manager.getReapedCount()).isZero();
+
+        ticker.advance(Duration.ofMillis(2));
+        manager.reapExpiredTransactions();
+
+        assertThat(manager.getReapedCount()).isEqualTo(1);
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        assertThat(manager.getOpenTransactionCount()).isZero();
+        assertThatThrownBy(transaction::commit)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(Transaction.ERROR_REAPED);
+    }
+}
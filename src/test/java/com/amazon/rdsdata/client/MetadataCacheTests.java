@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.util.List;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MetadataCacheTests extends TestBase {
+    private static final String SQL = "SELECT id, name FROM users";
+
+    @Test
+    void shouldOmitMetadataAfterFirstExecution() {
+        val cache = MetadataCache.builder().build();
+        val cachingClient = clientBuilder().metadataCache(cache).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenReturn(response(true, user(1, "alice")))
+                .thenReturn(response(false, user(2, "bob")));
+
+        val first = cachingClient.forSql(SQL).execute();
+        val second = cachingClient.forSql(SQL).execute();
+
+        assertThat(second.mapToSingle(User.class).name).isEqualTo("bob");
+        assertThat(second.getResultMetadata()).isSameAs(first.getResultMetadata());
+        assertThat(sentIncludeResultMetadata()).containsExactly(true, false);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefreshWhenColumnCountChanges() {
+        val cache = MetadataCache.builder().build();
+        val cachingClient = clientBuilder().metadataCache(cache).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenReturn(response(true, user(1, "alice")))
+                .thenReturn(ExecuteStatementResponse.builder()
+                        .records(singletonList(singletonList(longField(2))))
+                        .build())
+                .thenReturn(ExecuteStatementResponse.builder()
+                        .columnMetadata(ColumnMetadata.builder().name("id").build())
+                        .records(singletonList(singletonList(longField(2))))
+                        .build());
+
+        cachingClient.forSql(SQL).execute();
+        val result = cachingClient.forSql(SQL).execute();
+
+        assertThat(result.getColumnValues("id", Long.class)).containsExactly(2L);
+        assertThat(cache.getRefreshCount()).isEqualTo(1);
+        assertThat(sentIncludeResultMetadata()).containsExactly(true, false, true);
+    }
+
+    @Test
+    void shouldAlwaysRequestMetadataForWrites() {
+        val cache = MetadataCache.builder().build();
+        val cachingClient = clientBuilder().metadataCache(cache).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenReturn(response(true, user(1, "alice")));
+
+        cachingClient.forSql("DELETE FROM users RETURNING id, name").execute();
+        cachingClient.forSql("DELETE FROM users RETURNING id, name").execute();
+
+        assertThat(sentIncludeResultMetadata()).containsExactly(true, true);
+        assertThat(cache.getStatementCount()).isZero();
+    }
+
+    @Test
+    void shouldShareMetadataBetweenPagesOfStatement() {
+        val cache = MetadataCache.builder().build();
+        val cachingClient = clientBuilder()
+                .metadataCache(cache)
+                .pageSplitter(PageSplitter.builder().initialPageSize(2).build())
+                .build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(BadRequestException.builder().message(PageSplitter.RESPONSE_SIZE_LIMIT_MESSAGE).build())
+                .thenReturn(response(true, user(1, "alice")))
+                .thenReturn(response(false, user(1, "alice")));
+
+        cachingClient.forSql(SQL + " ORDER BY id").execute();
+        val result = cachingClient.forSql(SQL + " ORDER BY id").execute();
+
+        assertThat(result.mapToSingle(User.class).name).isEqualTo("alice");
+        assertThat(sentIncludeResultMetadata()).containsExactly(true, true, false);
+        assertThat(cache.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedStatements() {
+        val cache = MetadataCache.builder().maxStatements(1).build();
+        val cachingClient = clientBuilder().metadataCache(cache).build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenReturn(response(true, user(1, "alice")));
+
+        cachingClient.forSql(SQL).execute();
+        cachingClient.forSql(SQL + " WHERE id = 1").execute();
+        cachingClient.forSql(SQL).execute();
+
+        assertThat(sentIncludeResultMetadata()).containsExactly(true, true, true);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+        assertThat(cache.getStatementCount()).isEqualTo(1);
+    }
+
+    private List<Boolean> sentIncludeResultMetadata() {
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        return captor.getAllValues().stream()
+                .map(ExecuteStatementRequest::includeResultMetadata)
+                .collect(toList());
+    }
+
+    private static ExecuteStatementResponse response(boolean withMetadata, List<Field> row) {
+        val response = ExecuteStatementResponse.builder()
+                .records(singletonList(row));
+        if (withMetadata) {
+            response.columnMetadata(ColumnMetadata.builder().name("id").build(),
+                    ColumnMetadata.builder().name("name").build());
+        }
+        return response.build();
+    }
+
+    private static List<Field> user(long id, String name) {
+        return asList(longField(id), stringField(name));
+    }
+
+    public static class User {
+        public long id;
+        public String name;
+    }
+}
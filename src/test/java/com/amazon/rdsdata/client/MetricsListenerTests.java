@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockColumn;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class MetricsListenerTests extends TestBase {
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    void shouldReportCallWithSizesAndCounts() {
+        mockUsers();
+
+        clientBuilder().metricsListener(listener).build()
+                .forSql("SELECT * FROM users WHERE id IN (?)", 1).execute();
+
+        assertThat(listener.calls).hasSize(1);
+        val call = listener.calls.get(0);
+        assertThat(call.getOperation()).isEqualTo(CallMetrics.Operation.EXECUTE_STATEMENT);
+        assertThat(call.getSql()).isEqualTo(captureRequest().sql());
+        assertThat(call.getRowCount()).isEqualTo(2);
+        assertThat(call.getColumnCount()).isEqualTo(2);
+        assertThat(call.getParameterSetCount()).isEqualTo(1);
+        assertThat(call.getRequestBytes()).isGreaterThan(call.getSql().length());
+        // two rows of a long (8 bytes) and a string, each field with 16 bytes of overhead
+        assertThat(call.getResponseBytes()).isEqualTo(2 * (16 + 8) + (16 + 5) + (16 + 3));
+        assertThat(call.getDurationNanos()).isPositive();
+        assertThat(call.getError()).isNull();
+    }
+
+    @Test
+    void shouldReportFailedCallsWithErrorType() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(BadRequestException.builder().build());
+        val metrics = new HistogramMetricsListener();
+
+        assertThatThrownBy(() -> clientBuilder().metricsListener(metrics).build()
+                .forSql("SELECT 1").execute())
+                .isInstanceOf(BadRequestException.class);
+
+        assertThat(metrics.getErrorCounts()).containsEntry("BadRequestException", 1L);
+        assertThat(metrics.getCallLatency(CallMetrics.Operation.EXECUTE_STATEMENT).getCount()).isEqualTo(1);
+        assertThat(metrics.getResponseSize().getCount()).isZero();
+    }
+
+    @Test
+    void shouldReportParameterEncodingAndMapping() {
+        mockUsers();
+
+        val users = clientBuilder().metricsListener(listener).build()
+                .forSql("SELECT * FROM users WHERE id IN (?)", 1)
+                .execute()
+                .mapToList(User.class);
+
+        assertThat(users).hasSize(2);
+        assertThat(listener.encodedStatements).containsExactly(listener.calls.get(0).getSql());
+        assertThat(listener.mappedClasses).containsExactly(User.class);
+        assertThat(listener.mappedRows).containsExactly(2);
+    }
+
+    @Test
+    void shouldNotReportMappingOfSharedResultsForOtherClients() {
+        mockUsers();
+        val cache = ResultCache.builder().defaultTtl(Duration.ofMinutes(1)).build();
+        val metricsClient = clientBuilder()
+                .metricsListener(listener)
+                .resultCache(cache)
+                .build();
+        val plainClient = clientBuilder()
+                .resultCache(cache)
+                .build();
+
+        metricsClient.forSql("SELECT * FROM users").execute();
+        plainClient.forSql("SELECT * FROM users").execute().mapToList(User.class);
+
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(listener.mappedClasses).isEmpty();
+    }
+
+    @Test
+    void shouldReportTransactionCalls() {
+        mockBeginTransaction(sdkClient, "tx");
+
+        val transactionalClient = clientBuilder().metricsListener(listener).build();
+        val transactionId = transactionalClient.beginTransaction();
+        transactionalClient.commitTransaction(transactionId);
+
+        assertThat(listener.calls)
+                .extracting(CallMetrics::getOperation)
+                .containsExactly(CallMetrics.Operation.BEGIN_TRANSACTION, CallMetrics.Operation.COMMIT_TRANSACTION);
+        assertThat(listener.calls).extracting(CallMetrics::getSql).containsOnlyNulls();
+    }
+
+    @Test
+    void shouldAggregateIntoHistograms() {
+        mockUsers();
+        val metrics = new HistogramMetricsListener();
+
+        val metricsClient = clientBuilder().metricsListener(metrics).build();
+        for (int i = 0; i < 10; i++) {
+            metricsClient.forSql("SELECT * FROM users").execute().mapToList(User.class);
+        }
+
+        assertThat(metrics.getCallLatency(CallMetrics.Operation.EXECUTE_STATEMENT).getCount()).isEqualTo(10);
+        assertThat(metrics.getRowCount().getValueAtPercentile(99)).isEqualTo(2);
+        assertThat(metrics.getColumnCount().getMax()).isEqualTo(2);
+        assertThat(metrics.getMappingTime().getCount()).isEqualTo(10);
+        assertThat(metrics.getParameterEncodingTime().getCount()).isEqualTo(10);
+        assertThat(metrics.getErrorCounts()).isEmpty();
+    }
+
+    private void mockUsers() {
+        mockReturnValues(
+                ImmutableList.of(mockColumn("id", longField(1L)), mockColumn("name", stringField("alice"))),
+                ImmutableList.of(mockColumn("id", longField(2L)), mockColumn("name", stringField("bob"))));
+    }
+
+    private static class RecordingListener implements MetricsListener {
+        final List<CallMetrics> calls = new ArrayList<>();
+        final List<String> encodedStatements = new ArrayList<>();
+        final List<Class<?>> mappedClasses = new ArrayList<>();
+        final List<Integer> mappedRows = new ArrayList<>();
+
+        @Override
+        public void onCall(CallMetrics metrics) {
+            calls.add(metrics);
+        }
+
+        @Override
+        public void onParameterEncoding(String sql, int parameterSetCount, long durationNanos) {
+            encodedStatements.add(sql);
+        }
+
+        @Override
+        public void onMapping(String sql, Class<?> targetClass, int rowCount, long durationNanos) {
+            mappedClasses.add(targetClass);
+            mappedRows.add(rowCount);
+        }
+    }
+
+    @Value
+    private static class User {
+        public final long id;
+        public final String name;
+    }
+}
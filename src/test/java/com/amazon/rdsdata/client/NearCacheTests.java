@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NearCacheTests extends TestBase {
+    private static final String SQL = "SELECT * FROM currencies";
+    private static final Pattern LIMIT_OFFSET = Pattern.compile("LIMIT (\\d+) OFFSET (\\d+)$");
+
+    private final AtomicReference<List<List<Field>>> currencies = new AtomicReference<>(asList(
+            currency(1, "EUR", "Europe"),
+            currency(2, "CHF", "Europe"),
+            currency(3, "USD", "America")));
+    private final AtomicLong watermark = new AtomicLong(1);
+    private final Semaphore loads = new Semaphore(0);
+
+    @Test
+    void shouldLoadOnFirstLookupAndAnswerLocally() {
+        mockCurrencies();
+        val cache = client.forNearCache(SQL, "code", String.class, Currency.class);
+
+        assertThat(cache.get("EUR")).isEqualTo(new Currency(1, "EUR", "Europe"));
+        assertThat(cache.get("USD")).isEqualTo(new Currency(3, "USD", "America"));
+        assertThat(cache.get("JPY")).isNull();
+        assertThat(cache.size()).isEqualTo(3);
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldLookUpLongKeys() {
+        mockCurrencies();
+        val cache = client.forNearCache(SQL, "id", Long.class, Currency.class);
+
+        assertThat(cache.get(2L).code).isEqualTo("CHF");
+        assertThat(cache.get(4L)).isNull();
+    }
+
+    @Test
+    void shouldFindRowsByIndexedColumn() {
+        mockCurrencies();
+        val cache = client.forNearCache(SQL, "id", Long.class, Currency.class)
+                .withIndex("region", String.class);
+
+        assertThat(cache.findBy("region", "Europe"))
+                .extracting(currency -> currency.code)
+                .containsExactly("EUR", "CHF");
+        assertThat(cache.findBy("region", "Asia")).isEmpty();
+        assertThatThrownBy(() -> cache.findBy("code", "EUR"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(NearCache.ERROR_NO_INDEX + "code");
+    }
+
+    @Test
+    void shouldReloadOnlyWhenWatermarkChanges() {
+        mockCurrencies();
+        val cache = client.forNearCache(SQL, "id", Long.class, Currency.class)
+                .withWatermarkColumn("version");
+        cache.get(1L);
+
+        cache.refresh();
+        assertThat(cache.getUnchangedCount()).isEqualTo(1);
+
+        currencies.set(singletonList(currency(1, "EUR", "Eurozone")));
+        watermark.set(2);
+        cache.refresh();
+
+        assertThat(cache.getLoadCount()).isEqualTo(2);
+        assertThat(cache.get(1L).region).isEqualTo("Eurozone");
+        assertThat(cache.get(2L)).isNull();
+        assertThat(captureWatermarkSql())
+                .isEqualTo("SELECT MAX(version) FROM (SELECT * FROM currencies) near_cache_watermark");
+    }
+
+    @Test
+    void shouldRefreshInBackground() throws Exception {
+        mockCurrencies();
+        try (val cache = client.forNearCache(SQL, "id", Long.class, Currency.class)
+                .withRefreshInterval(Duration.ofMillis(10))) {
+            assertThat(cache.get(1L).region).isEqualTo("Europe");
+
+            currencies.set(singletonList(currency(1, "EUR", "Eurozone")));
+            loads.drainPermits();
+            // refreshes do not overlap, so the second one starts after the first one published the new rows
+            loads.acquire(2);
+
+            assertThat(cache.get(1L).region).isEqualTo("Eurozone");
+        }
+    }
+
+    @Test
+    void shouldKeepSnapshotWhenRefreshFails() {
+        mockCurrencies();
+        val cache = client.forNearCache(SQL, "id", Long.class, Currency.class);
+        cache.get(1L);
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(BadRequestException.builder().build());
+
+        assertThatThrownBy(cache::refresh).isInstanceOf(BadRequestException.class);
+
+        assertThat(cache.get(1L).code).isEqualTo("EUR");
+    }
+
+    @Test
+    void shouldLoadInPagesWhenResultExceedsResponseSizeLimit() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val sql = invocation.<ExecuteStatementRequest>getArgument(0).sql();
+            val matcher = LIMIT_OFFSET.matcher(sql);
+            if (!matcher.find()) {
+                throw BadRequestException.builder().message(PageSplitter.RESPONSE_SIZE_LIMIT_MESSAGE).build();
+            }
+            val limit = Integer.parseInt(matcher.group(1));
+            val offset = Integer.parseInt(matcher.group(2));
+            val rows = currencies.get();
+            return ExecuteStatementResponse.builder()
+                    .columnMetadata(column("id"), column("code"), column("region"))
+                    .records(rows.subList(Math.min(offset, rows.size()), Math.min(offset + limit, rows.size())))
+                    .build();
+        });
+        val cache = client.forNearCache(SQL, "id", Long.class, Currency.class);
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(3L).code).isEqualTo("USD");
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        assertThat(captor.getAllValues().get(0).sql())
+                .isEqualTo("SELECT * FROM (SELECT * FROM currencies) near_cache_load ORDER BY id");
+    }
+
+    private void mockCurrencies() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val sql = invocation.<ExecuteStatementRequest>getArgument(0).sql();
+            if (sql.startsWith("SELECT MAX")) {
+                return ExecuteStatementResponse.builder()
+                        .columnMetadata(column("max"))
+                        .records(singletonList(singletonList(longField(watermark.get()))))
+                        .build();
+            }
+            loads.release();
+            return ExecuteStatementResponse.builder()
+                    .columnMetadata(column("id"), column("code"), column("region"))
+                    .records(currencies.get())
+                    .build();
+        });
+    }
+
+    private String captureWatermarkSql() {
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        return captor.getAllValues().stream()
+                .map(ExecuteStatementRequest::sql)
+                .filter(sql -> sql.startsWith("SELECT MAX"))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static ColumnMetadata column(String name) {
+        return ColumnMetadata.builder().name(name).build();
+    }
+
+    private static List<Field> currency(long id, String code, String region) {
+        return asList(longField(id), stringField(code), stringField(region));
+    }
+
+    @Value
+    private static class Currency {
+        public final long id;
+        public final String code;
+        public final String region;
+    }
+}
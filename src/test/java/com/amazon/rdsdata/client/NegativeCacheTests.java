@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.FakeTicker;
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.Field;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NegativeCacheTests extends TestBase {
+    private static final String LOOKUP = "SELECT 1 FROM users WHERE email IN (?)";
+
+    private final List<String> emails = new ArrayList<>();
+    private Runnable afterScan = () -> { };
+
+    @Test
+    void shouldRememberEmptyLookups() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+
+        assertThat(exists(cachingClient, "alice@example.com")).isFalse();
+        assertThat(exists(cachingClient, "alice@example.com")).isFalse();
+
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMemoryUsageBytes()).isPositive();
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldNotRememberLookupsThatFoundRows() {
+        val cachingClient = clientBuilder().negativeCache(NegativeCache.builder().build()).build();
+        mockUsers();
+        emails.add("alice@example.com");
+
+        assertThat(exists(cachingClient, "alice@example.com")).isTrue();
+        assertThat(exists(cachingClient, "alice@example.com")).isTrue();
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldInvalidateLookupsOnTaggedInsert() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+        exists(cachingClient, "alice@example.com");
+
+        insert(cachingClient, "alice@example.com");
+
+        assertThat(exists(cachingClient, "alice@example.com")).isTrue();
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldBypassCacheInTransactions() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+
+        for (int i = 0; i < 2; i++) {
+            cachingClient.forSql(LOOKUP, "alice@example.com")
+                    .withTransactionId("tx")
+                    .withNegativeCaching()
+                    .execute();
+        }
+
+        assertThat(cache.getLookupCount()).isZero();
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldForgetTransactionsThatAreNeverEnded() {
+        val ticker = new FakeTicker();
+        val cache = NegativeCache.builder().ticker(ticker).build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+
+        cachingClient.forSql("INSERT INTO users (email) VALUES (?)", "alice@example.com")
+                .withTableTags("users")
+                .withTransactionId("abandoned")
+                .execute();
+        ticker.advance(Duration.ofHours(25));
+        cachingClient.forSql("INSERT INTO users (email) VALUES (?)", "bob@example.com")
+                .withTableTags("users")
+                .withTransactionId("tx")
+                .execute();
+
+        assertThat(cache.getOpenTransactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectUnknownKeysWithBloomFilter() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+        emails.add("alice@example.com");
+        emails.add("bob@example.com");
+        cachingClient.seedNegativeCache(LOOKUP, "SELECT email FROM users", "users");
+
+        assertThat(exists(cachingClient, "carol@example.com")).isFalse();
+        assertThat(exists(cachingClient, "bob@example.com")).isTrue();
+        assertThat(cache.getBloomRejectCount()).isEqualTo(1);
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class)); // scan and bob
+
+        insert(cachingClient, "carol@example.com");
+        assertThat(exists(cachingClient, "carol@example.com")).isTrue();
+        assertThat(cache.getBloomFalsePositiveRate()).isBetween(0.0, 1.0);
+    }
+
+    @Test
+    void shouldFallThroughToDatabaseAfterBloomFilterExpires() {
+        val ticker = new FakeTicker();
+        val cache = NegativeCache.builder().bloomFilterTtl(Duration.ofMillis(1)).ticker(ticker).build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+        emails.add("alice@example.com");
+        cachingClient.seedNegativeCache(LOOKUP, "SELECT email FROM users", "users");
+
+        emails.add("bob@example.com"); // inserted by another client
+        ticker.advance(Duration.ofMillis(1));
+
+        assertThat(exists(cachingClient, "bob@example.com")).isTrue();
+        assertThat(cache.getBloomRejectCount()).isZero();
+    }
+
+    @Test
+    void shouldKeepKeysInsertedWhileSeeding() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+        emails.add("alice@example.com");
+        afterScan = () -> insert(cachingClient, "bob@example.com"); // lands after the scan, before the filter
+
+        cachingClient.seedNegativeCache(LOOKUP, "SELECT email FROM users", "users");
+
+        assertThat(exists(cachingClient, "bob@example.com")).isTrue();
+        assertThat(cache.getBloomRejectCount()).isZero();
+    }
+
+    @Test
+    void shouldNotRejectKeysThatDifferOnlyInCaseOrFormatting() {
+        val cache = NegativeCache.builder().build();
+        val cachingClient = clientBuilder().negativeCache(cache).build();
+        mockUsers();
+        emails.add("Alice@Example.com");
+        emails.add("42.00");
+        cachingClient.seedNegativeCache(LOOKUP, "SELECT email FROM users", "users");
+
+        exists(cachingClient, "alice@example.com ");
+        cachingClient.forSql(LOOKUP, 42).withNegativeCaching().withTableTags("users").execute();
+
+        assertThat(cache.getBloomRejectCount()).isZero();
+    }
+
+    private static boolean exists(RdsData cachingClient, String email) {
+        return cachingClient.forSql(LOOKUP, email)
+                .withNegativeCaching()
+                .withTableTags("users")
+                .execute()
+                .rowCount() > 0;
+    }
+
+    private static void insert(RdsData cachingClient, String email) {
+        cachingClient.forSql("INSERT INTO users (email) VALUES (?)", email)
+                .withTableTags("users")
+                .execute();
+    }
+
+    private void mockUsers() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val request = invocation.<ExecuteStatementRequest>getArgument(0);
+            if (request.sql().startsWith("INSERT")) {
+                emails.add(request.parameters().get(0).value().stringValue());
+                return ExecuteStatementResponse.builder().numberOfRecordsUpdated(1L).build();
+            }
+            if (request.sql().equals("SELECT email FROM users")) {
+                val records = new ArrayList<List<Field>>();
+                emails.forEach(email -> records.add(singletonList(stringField(email))));
+                afterScan.run();
+                return response("email", records);
+            }
+            val email = String.valueOf(request.parameters().get(0).value().stringValue());
+            return response("1", emails.contains(email)
+                    ? singletonList(singletonList(longField(1)))
+                    : emptyList());
+        });
+    }
+
+    private static ExecuteStatementResponse response(String column, List<List<Field>> records) {
+        return ExecuteStatementResponse.builder()
+                .columnMetadata(ColumnMetadata.builder().name(column).build())
+                .records(records)
+                .build();
+    }
+}
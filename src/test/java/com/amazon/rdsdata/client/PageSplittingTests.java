@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PageSplittingTests extends TestBase {
+    private static final String SQL = "SELECT id FROM items ORDER BY id";
+    private static final int TOTAL_ROWS = 5;
+    private static final int MAX_ROWS_PER_RESPONSE = 2;
+    private static final Pattern LIMIT_OFFSET = Pattern.compile("LIMIT (\\d+) OFFSET (\\d+)$");
+
+    private PageSplitter pageSplitter;
+
+    @BeforeEach
+    void beforeEach() {
+        pageSplitter = PageSplitter.builder()
+                .initialPageSize(4)
+                .build();
+        client = clientBuilder()
+                .pageSplitter(pageSplitter)
+                .build();
+        mockTableWithResponseSizeLimit();
+    }
+
+    @Test
+    void shouldMergePagesIntoSingleResult() {
+        val result = client.forSql(SQL)
+                .execute()
+                .mapToList(Item.class);
+
+        assertThat(result).extracting(item -> item.id).containsExactly(0L, 1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldRememberLearnedPageSize() {
+        client.forSql(SQL).execute();
+        assertThat(pageSplitter.getLearnedPageSize(SAMPLE_DB, SQL)).contains(MAX_ROWS_PER_RESPONSE);
+
+        reset(sdkClient);
+        mockTableWithResponseSizeLimit();
+        client.forSql(SQL).execute();
+
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        assertThat(captor.getAllValues().get(0).sql()).isEqualTo(SQL + " LIMIT 2 OFFSET 0");
+    }
+
+    @Test
+    void shouldForgetLeastRecentlyUsedPageSizes() {
+        pageSplitter = PageSplitter.builder()
+                .initialPageSize(4)
+                .maxStatements(1)
+                .build();
+        client = clientBuilder()
+                .pageSplitter(pageSplitter)
+                .build();
+        val otherSql = "SELECT id FROM items ORDER BY id DESC";
+
+        client.forSql(SQL).execute();
+        client.forSql(otherSql).execute();
+
+        assertThat(pageSplitter.getLearnedPageSize(SAMPLE_DB, SQL)).isEmpty();
+        assertThat(pageSplitter.getLearnedPageSize(SAMPLE_DB, otherSql)).contains(MAX_ROWS_PER_RESPONSE);
+    }
+
+    @Test
+    void shouldSplitStatementsEndingWithCommentOrSemicolon() {
+        val result = client.forSql(SQL + "; -- all items\n")
+                .execute()
+                .mapToList(Item.class);
+
+        assertThat(result).hasSize(TOTAL_ROWS);
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        verify(sdkClient, atLeastOnce()).executeStatement(captor.capture());
+        assertThat(captor.getValue().sql()).startsWith(SQL + " LIMIT ");
+    }
+
+    @Test
+    void shouldNotSplitWhenDisabled() {
+        val clientWithoutPageSplitting = clientBuilder()
+                .build();
+
+        assertThatThrownBy(() -> clientWithoutPageSplitting.forSql(SQL).execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldNotSplitStatementsThatAreNotReadOnly() {
+        assertThatThrownBy(() -> client.forSql("DELETE FROM items RETURNING id").execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldSplitStatementsWithLeadingComments() {
+        val result = client.forSql("/* report */ -- items\n" + SQL)
+                .execute()
+                .mapToList(Item.class);
+
+        assertThat(result).hasSize(TOTAL_ROWS);
+    }
+
+    @Test
+    void shouldNotSplitLockingOrWritingSelects() {
+        assertThatThrownBy(() -> client.forSql(SQL + " FOR UPDATE").execute())
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> client.forSql("SELECT id INTO copy FROM items").execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldNotSplitStatementsWithoutTopLevelOrderBy() {
+        assertThatThrownBy(() -> client.forSql("SELECT id FROM items").execute())
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining(PageSplitter.RESPONSE_SIZE_LIMIT_MESSAGE);
+        assertThatThrownBy(() -> client.forSql("SELECT id FROM (SELECT id FROM items ORDER BY id) sorted").execute())
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> client.forSql("SELECT id FROM items -- ORDER BY id").execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldNotSplitStatementsWithOffset() {
+        assertThatThrownBy(() -> client.forSql(SQL + " OFFSET 1").execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldNotSplitStatementsInTransaction() {
+        assertThatThrownBy(() -> client.forSql(SQL).withTransactionId("tx").execute())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private void mockTableWithResponseSizeLimit() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            ExecuteStatementRequest request = invocation.getArgument(0);
+            val matcher = LIMIT_OFFSET.matcher(request.sql());
+            long from = 0;
+            long to = TOTAL_ROWS;
+            if (matcher.find()) {
+                from = Long.parseLong(matcher.group(2));
+                to = Math.min(TOTAL_ROWS, from + Long.parseLong(matcher.group(1)));
+            }
+            if (to - from > MAX_ROWS_PER_RESPONSE) {
+                throw BadRequestException.builder()
+                        .message(PageSplitter.RESPONSE_SIZE_LIMIT_MESSAGE)
+                        .build();
+            }
+            return response(LongStream.range(from, to).boxed().collect(toList()));
+        });
+    }
+
+    private static ExecuteStatementResponse response(List<Long> ids) {
+        return ExecuteStatementResponse.builder()
+                .columnMetadata(ColumnMetadata.builder().name("id").build())
+                .records(ids.stream()
+                        .map(id -> singletonList(longField(id)))
+                        .collect(toList()))
+                .build();
+    }
+
+    public static class Item {
+        public long id;
+    }
+}
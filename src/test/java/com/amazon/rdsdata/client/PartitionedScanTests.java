@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+import software.amazon.awssdk.services.rdsdata.model.SqlParameter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.nullField;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class PartitionedScanTests extends TestBase {
+    private static final String SQL = "SELECT id FROM items WHERE id >= :lowerBound AND id < :upperBound ORDER BY id";
+    private static final String BOUNDS_SQL = "SELECT MIN(id), MAX(id) FROM items";
+    private static final String OPEN_BOUNDS_SQL = "SELECT MIN(id), NULL FROM items";
+    private static final long MAX_ID = 20;
+
+    private final AtomicReference<RuntimeException> nextPartitionFailure = new AtomicReference<>();
+    private final AtomicInteger partitionCalls = new AtomicInteger();
+    private final AtomicLong maxId = new AtomicLong(MAX_ID);
+
+    @BeforeEach
+    void beforeEach() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            ExecuteStatementRequest request = invocation.getArgument(0);
+            if (request.sql().equals(BOUNDS_SQL)) {
+                return ExecuteStatementResponse.builder()
+                        .columnMetadata(column("min"), column("max"))
+                        .records(singletonList(asList(longField(1), longField(maxId.get()))))
+                        .build();
+            }
+            if (request.sql().equals(OPEN_BOUNDS_SQL)) {
+                return ExecuteStatementResponse.builder()
+                        .columnMetadata(column("min"), column("max"))
+                        .records(singletonList(asList(longField(1), nullField())))
+                        .build();
+            }
+            partitionCalls.incrementAndGet();
+            val failure = nextPartitionFailure.getAndSet(null);
+            if (failure != null) {
+                throw failure;
+            }
+            val ids = LongStream.range(parameter(request, "lowerBound"), parameter(request, "upperBound"))
+                    .filter(id -> id >= 1 && id <= maxId.get())
+                    .boxed()
+                    .collect(toList());
+            return response(ids);
+        });
+    }
+
+    @Test
+    void shouldSplitRangeIntoPartitions() {
+        val ranges = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, 10L)
+                .withPartitions(3)
+                .buildRanges();
+
+        assertThat(ranges).containsExactly(
+                new PartitionedScan.Range<>(1L, 5L),
+                new PartitionedScan.Range<>(5L, 8L),
+                new PartitionedScan.Range<>(8L, 11L));
+    }
+
+    @Test
+    void shouldNotCreateMorePartitionsThanKeys() {
+        val ranges = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, 2L)
+                .withPartitions(8)
+                .buildRanges();
+
+        assertThat(ranges).hasSize(2);
+    }
+
+    @Test
+    void shouldRejectKeyRangeThatCannotBePartitioned() {
+        val scan = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertThatThrownBy(scan::buildRanges)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(PartitionedScan.ERROR_RANGE_TOO_LARGE);
+    }
+
+    @Test
+    void shouldRejectBoundsQueryWithoutUpperBound() {
+        val scan = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBoundsQuery(OPEN_BOUNDS_SQL);
+
+        assertThatThrownBy(scan::buildRanges)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(PartitionedScan.ERROR_NO_UPPER_BOUND);
+    }
+
+    @Test
+    void shouldSplitTimeRange() {
+        val start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        val ranges = client.forPartitionedScan(SQL, "created", LocalDateTime.class)
+                .withBounds(start, start.plusDays(2).minusNanos(1_000_000))
+                .withPartitions(2)
+                .buildRanges();
+
+        assertThat(ranges).containsExactly(
+                new PartitionedScan.Range<>(start, start.plusDays(1)),
+                new PartitionedScan.Range<>(start.plusDays(1), start.plusDays(2)));
+    }
+
+    @Test
+    void shouldReturnOrderedStream() {
+        val result = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, MAX_ID)
+                .withPartitions(7)
+                .withConcurrency(3)
+                .orderedStream(Item.class)
+                .map(item -> item.id)
+                .collect(toList());
+
+        assertThat(result).containsExactlyElementsOf(LongStream.rangeClosed(1, MAX_ID).boxed().collect(toList()));
+    }
+
+    @Test
+    void shouldReturnAllRowsInUnorderedStream() {
+        val result = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBoundsQuery(BOUNDS_SQL)
+                .withPartitions(4)
+                .stream(Item.class)
+                .map(item -> item.id)
+                .collect(toList());
+
+        assertThat(result).containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, MAX_ID).boxed().collect(toList()));
+    }
+
+    @Test
+    void shouldDiscoverBoundsOnEveryScan() {
+        val scan = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBoundsQuery(BOUNDS_SQL)
+                .withPartitions(4);
+        assertThat(scan.stream(Item.class).count()).isEqualTo(MAX_ID);
+
+        maxId.set(MAX_ID + 10);
+
+        assertThat(scan.stream(Item.class).count()).isEqualTo(MAX_ID + 10);
+    }
+
+    @Test
+    void shouldRetryFailedPartition() {
+        nextPartitionFailure.set(ServiceUnavailableErrorException.builder().build());
+
+        val result = client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, MAX_ID)
+                .withPartitions(4)
+                .withRetries(2, Duration.ZERO)
+                .orderedStream(Item.class)
+                .count();
+
+        assertThat(result).isEqualTo(MAX_ID);
+    }
+
+    @Test
+    void shouldFailWhenPartitionRunsOutOfAttempts() {
+        nextPartitionFailure.set(ServiceUnavailableErrorException.builder().build());
+
+        assertThatThrownBy(() -> client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, MAX_ID)
+                .withRetries(1, Duration.ZERO)
+                .orderedStream(Item.class)
+                .count())
+                .isInstanceOf(ServiceUnavailableErrorException.class);
+    }
+
+    @Test
+    void shouldNotRetryPartitionThatFailedPermanently() {
+        nextPartitionFailure.set(BadRequestException.builder().message("syntax error").build());
+
+        assertThatThrownBy(() -> client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, MAX_ID)
+                .withPartitions(1)
+                .withRetries(3, Duration.ZERO)
+                .orderedStream(Item.class)
+                .count())
+                .isInstanceOf(BadRequestException.class);
+        assertThat(partitionCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldBindIntegerRangeEndingAtMaxValue() {
+        val ranges = client.forPartitionedScan(SQL, "id", Integer.class)
+                .withBounds(Integer.MAX_VALUE - 3, Integer.MAX_VALUE)
+                .withPartitions(2)
+                .buildRanges();
+
+        assertThat(ranges).containsExactly(
+                new PartitionedScan.Range<>(Integer.MAX_VALUE - 3L, Integer.MAX_VALUE - 1L),
+                new PartitionedScan.Range<>(Integer.MAX_VALUE - 1L, Integer.MAX_VALUE + 1L));
+    }
+
+    @Test
+    void shouldRejectPartitionThatIsNotOrderedByKey() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenReturn(response(asList(2L, 1L)));
+
+        assertThatThrownBy(() -> client.forPartitionedScan(SQL, "id", Long.class)
+                .withBounds(1L, 2L)
+                .withPartitions(1)
+                .orderedStream(Item.class)
+                .count())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(PartitionedScan.ERROR_PARTITION_NOT_ORDERED);
+    }
+
+    private static long parameter(ExecuteStatementRequest request, String name) {
+        return request.parameters().stream()
+                .filter(p -> p.name().equals(name))
+                .map(SqlParameter::value)
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new)
+                .longValue();
+    }
+
+    private static ColumnMetadata column(String name) {
+        return ColumnMetadata.builder().name(name).build();
+    }
+
+    private static ExecuteStatementResponse response(List<Long> ids) {
+        return ExecuteStatementResponse.builder()
+                .columnMetadata(column("id"))
+                .records(ids.stream()
+                        .map(id -> singletonList(longField(id)))
+                        .collect(toList()))
+                .build();
+    }
+
+    public static class Item {
+        public long id;
+    }
+}
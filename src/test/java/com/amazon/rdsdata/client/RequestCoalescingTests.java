@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.rdsdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestCoalescingTests extends TestBase {
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Semaphore sentCalls = new Semaphore(0);
+
+    @BeforeEach
+    void beforeEach() {
+        client = clientBuilder()
+                .requestCoalescer(coalescer)
+                .build();
+
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            sentCalls.release();
+            release.await();
+            return ExecuteStatementResponse.builder()
+                    .columnMetadata(ColumnMetadata.builder().name("value").build())
+                    .records(singletonList(singletonList(longField(42))))
+                    .build();
+        });
+    }
+
+    @Test
+    void shouldShareInFlightCallBetweenIdenticalQueries() throws Exception {
+        val first = CompletableFuture.supplyAsync(() -> client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        sentCalls.acquire();
+        val second = CompletableFuture.supplyAsync(() -> client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        awaitUntil(() -> coalescer.getCoalescedCount() > 0); // the first call stays in flight until released
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(second.get().singleValue(Long.class)).isEqualTo(42L);
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldNotShareCallsWithDifferentParameters() throws Exception {
+        release.countDown();
+
+        client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute();
+        client.forSql("SELECT a FROM t WHERE id IN (?)", 2).execute();
+
+        assertThat(coalescer.getExecutedCount()).isEqualTo(2);
+        assertThat(coalescer.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void shouldNotShareCallsWithDifferentMappingOptions() throws Exception {
+        val labelClient = client.withMappingOptions(MappingOptions.DEFAULT.withUseLabelForMapping(true));
+        val first = CompletableFuture.supplyAsync(() -> client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        sentCalls.acquire();
+        val second = CompletableFuture.supplyAsync(() -> labelClient.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        sentCalls.acquire();
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(coalescer.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void shouldRetryWhenSharedCallRanOutOfItsCallersTime() throws Exception {
+        doAnswer(invocation -> {
+            sentCalls.release();
+            release.await();
+            throw ApiCallTimeoutException.builder().message("Client execution did not complete").build();
+        }).doReturn(ExecuteStatementResponse.builder()
+                .columnMetadata(ColumnMetadata.builder().name("value").build())
+                .records(singletonList(singletonList(longField(42))))
+                .build())
+                .when(sdkClient).executeStatement(any(ExecuteStatementRequest.class));
+        val first = CompletableFuture.supplyAsync(() -> client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        sentCalls.acquire();
+        val second = CompletableFuture.supplyAsync(() -> client.forSql("SELECT a FROM t WHERE id IN (?)", 1).execute());
+        awaitUntil(() -> coalescer.getCoalescedCount() > 0);
+        release.countDown();
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(ApiCallTimeoutException.class);
+        assertThat(second.get(5, TimeUnit.SECONDS).singleValue(Long.class)).isEqualTo(42L);
+        assertThat(coalescer.getExecutedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCoalesceWritesOrTransactions() {
+        release.countDown();
+
+        client.forSql("UPDATE t SET a = 1").execute();
+        client.forSql("SELECT 1").withTransactionId("tx").execute();
+
+        assertThat(coalescer.getExecutedCount()).isZero();
+    }
+}
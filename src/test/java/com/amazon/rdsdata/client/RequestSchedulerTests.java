@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class RequestSchedulerTests extends TestBase {
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final List<String> sentStatements = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blockedSent = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldNotLetBulkRequestsTakeReservedSlots() throws Exception {
+        val scheduler = RequestScheduler.builder()
+                .maxInFlight(2)
+                .reservedForInteractive(1)
+                .build();
+        val schedulingClient = clientBuilder().requestScheduler(scheduler).build();
+        mockBlockingResponses();
+
+        val blockedBulk = submit(schedulingClient, "SELECT blocked", Priority.BULK);
+        blockedSent.await();
+        val queuedBulk = submit(schedulingClient, "SELECT bulk", Priority.BULK);
+        awaitQueueLength(scheduler, Priority.BULK, 1);
+
+        schedulingClient.forSql("SELECT interactive").execute();
+
+        assertThat(queuedBulk).isNotDone();
+        assertThat(scheduler.getInFlight(Priority.BULK)).isEqualTo(1);
+        release.countDown();
+        blockedBulk.get(5, TimeUnit.SECONDS);
+        queuedBulk.get(5, TimeUnit.SECONDS);
+        assertThat(scheduler.getRequestCount(Priority.BULK)).isEqualTo(2);
+        assertThat(scheduler.getRequestCount(Priority.INTERACTIVE)).isEqualTo(1);
+        assertThat(scheduler.getMaxWaitTime(Priority.BULK)).isPositive();
+    }
+
+    @Test
+    void shouldShareSlotsByWeight() throws Exception {
+        val scheduler = RequestScheduler.builder()
+                .maxInFlight(1)
+                .reservedForInteractive(0)
+                .interactiveWeight(2)
+                .bulkWeight(1)
+                .build();
+        val schedulingClient = clientBuilder().requestScheduler(scheduler).build();
+        mockBlockingResponses();
+
+        val blocked = submit(schedulingClient, "SELECT blocked", Priority.INTERACTIVE);
+        blockedSent.await();
+        val queued = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 1; i <= 3; i++) {
+            queued.add(submit(schedulingClient, "SELECT b" + i, Priority.BULK));
+            awaitQueueLength(scheduler, Priority.BULK, i);
+        }
+        for (int i = 1; i <= 3; i++) {
+            queued.add(submit(schedulingClient, "SELECT i" + i, Priority.INTERACTIVE));
+            awaitQueueLength(scheduler, Priority.INTERACTIVE, i);
+        }
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        for (val future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(sentStatements).containsExactly(
+                "SELECT blocked", "SELECT b1", "SELECT i1", "SELECT i2", "SELECT b2", "SELECT i3", "SELECT b3");
+    }
+
+    @Test
+    void shouldQueueOnlyInSchedulerWhenLimiterIsFull() throws Exception {
+        val scheduler = RequestScheduler.builder()
+                .maxInFlight(10)
+                .reservedForInteractive(0)
+                .interactiveWeight(2)
+                .bulkWeight(1)
+                .build();
+        val limiter = ConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .build();
+        val schedulingClient = clientBuilder()
+                .requestScheduler(scheduler)
+                .concurrencyLimiter(limiter)
+                .build();
+        mockBlockingResponses();
+
+        val blocked = submit(schedulingClient, "SELECT blocked", Priority.INTERACTIVE);
+        blockedSent.await();
+        val queued = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 1; i <= 3; i++) {
+            queued.add(submit(schedulingClient, "SELECT b" + i, Priority.BULK));
+            awaitQueueLength(scheduler, Priority.BULK, i);
+        }
+        for (int i = 1; i <= 3; i++) {
+            queued.add(submit(schedulingClient, "SELECT i" + i, Priority.INTERACTIVE));
+            awaitQueueLength(scheduler, Priority.INTERACTIVE, i);
+        }
+
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getQueueLength()).isZero();
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        for (val future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(sentStatements).containsExactly(
+                "SELECT blocked", "SELECT b1", "SELECT i1", "SELECT i2", "SELECT b2", "SELECT i3", "SELECT b3");
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldRejectCallersAfterQueueTimeout() throws Exception {
+        val scheduler = RequestScheduler.builder()
+                .maxInFlight(1)
+                .reservedForInteractive(0)
+                .queueTimeout(Duration.ZERO)
+                .build();
+        val schedulingClient = clientBuilder().requestScheduler(scheduler).build();
+        mockBlockingResponses();
+
+        val blocked = submit(schedulingClient, "SELECT blocked", Priority.BULK);
+        blockedSent.await();
+
+        assertThatThrownBy(() -> schedulingClient.forSql("SELECT 1").execute())
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(scheduler.getRejectedCount(Priority.INTERACTIVE)).isEqualTo(1);
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertThat(scheduler.getInFlight()).isZero();
+    }
+
+    private void mockBlockingResponses() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val sql = invocation.<ExecuteStatementRequest>getArgument(0).sql();
+            sentStatements.add(sql);
+            if (sql.equals("SELECT blocked")) {
+                blockedSent.countDown();
+                release.await();
+            }
+            return ExecuteStatementResponse.builder().build();
+        });
+    }
+
+    private CompletableFuture<Void> submit(RdsData schedulingClient, String sql, Priority priority) {
+        return CompletableFuture.runAsync(() -> schedulingClient.forSql(sql).withPriority(priority).execute(),
+                executorService);
+    }
+
+    private static void awaitQueueLength(RequestScheduler scheduler, Priority priority, int length) {
+        awaitUntil(() -> scheduler.getQueueLength(priority) >= length);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.FakeTicker;
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+
+import java.time.Duration;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockColumn;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ResultCacheTests extends TestBase {
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        val cache = ResultCache.builder().build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue(mockColumn("name", stringField("alice")));
+
+        val first = cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).withCacheTtl(TTL).execute();
+        val second = cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).withCacheTtl(TTL).execute();
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.singleValue(String.class)).isEqualTo("alice");
+        assertThat(cache.getHitRatio()).isEqualTo(0.5);
+        assertThat(cache.getSizeInBytes()).isPositive();
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldKeyResultsByParameters() {
+        val cachingClient = clientBuilder().resultCache(ResultCache.builder().defaultTtl(TTL).build()).build();
+        mockReturnValue(mockColumn("name", stringField("alice")));
+
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute();
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 2).execute();
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldKeyResultsByMappingOptions() {
+        val cachingClient = clientBuilder().resultCache(ResultCache.builder().defaultTtl(TTL).build()).build();
+        val labelClient = cachingClient.withMappingOptions(MappingOptions.DEFAULT.withUseLabelForMapping(true));
+        mockReturnValue(mockColumn("name", stringField("alice")));
+
+        val first = cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute();
+        val second = labelClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute();
+
+        assertThat(second).isNotSameAs(first);
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldNotCacheWithoutTtl() {
+        val cache = ResultCache.builder().build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue();
+
+        cachingClient.forSql("SELECT 1").execute();
+        cachingClient.forSql("SELECT 1").execute();
+
+        assertThat(cache.getMissCount()).isZero();
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldExpireResultsAfterTtl() {
+        val ticker = new FakeTicker();
+        val cachingClient = clientBuilder().resultCache(ResultCache.builder().ticker(ticker).build()).build();
+        mockReturnValue();
+
+        cachingClient.forSql("SELECT 1").withCacheTtl(Duration.ofMillis(1)).execute();
+        ticker.advance(Duration.ofMillis(1));
+        cachingClient.forSql("SELECT 1").withCacheTtl(Duration.ofMillis(1)).execute();
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldForgetTransactionsThatAreNeverEnded() {
+        val ticker = new FakeTicker();
+        val cache = ResultCache.builder().defaultTtl(TTL).ticker(ticker).build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue();
+
+        cachingClient.forSql("UPDATE users SET name = 'bob'").withTableTags("users").withTransactionId("abandoned").execute();
+        ticker.advance(Duration.ofHours(25));
+        cachingClient.forSql("UPDATE users SET name = 'alice'").withTableTags("users").withTransactionId("tx").execute();
+
+        assertThat(cache.getOpenTransactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInvalidateResultsByTableTag() {
+        val cache = ResultCache.builder().defaultTtl(TTL).build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue();
+
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute();
+        cachingClient.forSql("SELECT name FROM orders").withTableTags("orders").execute();
+        cachingClient.forSql("UPDATE users SET name = 'bob'").withTableTags("users").execute();
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute();
+        cachingClient.forSql("SELECT name FROM orders").withTableTags("orders").execute();
+
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        verify(sdkClient, times(4)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldInvalidateResultsAgainWhenTransactionCommits() {
+        val cache = ResultCache.builder().defaultTtl(TTL).build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue();
+
+        cachingClient.forSql("UPDATE users SET name = 'bob'").withTableTags("users").withTransactionId("tx").execute();
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute(); // reads the old name
+        cachingClient.commitTransaction("tx");
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute();
+
+        assertThat(cache.getHitCount()).isZero();
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+        verify(sdkClient, times(3)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldBypassCacheInTransactions() {
+        val cache = ResultCache.builder().defaultTtl(TTL).build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        mockReturnValue();
+
+        cachingClient.forSql("SELECT 1").withTransactionId("tx").execute();
+        cachingClient.forSql("SELECT 1").withTransactionId("tx").execute();
+
+        assertThat(cache.getEntryCount()).isZero();
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedResults() {
+        mockReturnValue(mockColumn("name", stringField("alice")));
+        val probe = ResultCache.builder().defaultTtl(TTL).build();
+        clientBuilder().resultCache(probe).build()
+                .forSql("SELECT name FROM users WHERE id IN (?)", 0).execute();
+        val resultSize = probe.getSizeInBytes();
+
+        val cache = ResultCache.builder()
+                .defaultTtl(TTL)
+                .maxSizeInBytes(2 * resultSize)
+                .build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute();
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 2).execute();
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute(); // 2 becomes the eldest
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 3).execute();
+        cachingClient.forSql("SELECT name FROM users WHERE id IN (?)", 1).execute();
+
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getEntryCount()).isEqualTo(2);
+        assertThat(cache.getSizeInBytes()).isEqualTo(2 * resultSize);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+    }
+}
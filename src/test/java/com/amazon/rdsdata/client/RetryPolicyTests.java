@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.OngoingStubbing;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionResponse;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RdsDataException;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RetryPolicyTests extends TestBase {
+    private static final RuntimeException UNAVAILABLE = ServiceUnavailableErrorException.builder().build();
+    private static final RuntimeException THROTTLED = RdsDataException.builder().statusCode(429).build();
+    private static final RuntimeException LINK_FAILURE = BadRequestException.builder()
+            .message("Communications link failure\n\nThe last packet sent successfully to the server was 0 milliseconds ago.")
+            .build();
+    private static final RuntimeException RESUMING = RdsDataException.builder()
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode("DatabaseResumingException").build())
+            .statusCode(400)
+            .build();
+
+    private RetryPolicy.RetryPolicyBuilder retryPolicy = RetryPolicy.builder()
+            .baseDelay(Duration.ofMillis(1))
+            .maxDelay(Duration.ofMillis(1));
+
+    @Test
+    void shouldRetryReadOnlyStatementAfterTransientError() {
+        val policy = retryPolicy.build();
+        failTimes(1, UNAVAILABLE);
+
+        clientBuilder().retryPolicy(policy).build()
+                .forSql("SELECT 1").execute();
+
+        assertThat(policy.getAttemptCount()).isEqualTo(2);
+        assertThat(policy.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetryWriteAfterErrorThatMayHaveExecutedIt() {
+        failTimes(1, UNAVAILABLE);
+
+        assertThatThrownBy(() -> clientBuilder().retryPolicy(retryPolicy.build()).build()
+                .forSql("INSERT INTO t VALUES (1)").execute())
+                .isSameAs(UNAVAILABLE);
+    }
+
+    @Test
+    void shouldRetryWriteRejectedBeforeExecution() {
+        failTimes(1, THROTTLED);
+
+        clientBuilder().retryPolicy(retryPolicy.build()).build()
+                .forSql("INSERT INTO t VALUES (1)").execute();
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldRetryWriteMarkedAsIdempotent() {
+        failTimes(1, UNAVAILABLE);
+
+        clientBuilder().retryPolicy(retryPolicy.build()).build()
+                .forSql("UPDATE t SET a = 1").asIdempotent().execute();
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldNeverRetryInsideTransaction() {
+        failTimes(1, THROTTLED);
+
+        assertThatThrownBy(() -> clientBuilder().retryPolicy(retryPolicy.build()).build()
+                .forSql("SELECT 1").withTransactionId("tx").execute())
+                .isSameAs(THROTTLED);
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        failTimes(3, UNAVAILABLE);
+
+        assertThatThrownBy(() -> clientBuilder().retryPolicy(retryPolicy.maxAttempts(3).build()).build()
+                .forSql("SELECT 1").execute())
+                .isSameAs(UNAVAILABLE);
+        verify(sdkClient, times(3)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldStopRetryingWhenBudgetIsExhausted() {
+        val policy = retryPolicy
+                .budgetCapacity(5)
+                .retryCost(5)
+                .build();
+        val clientWithBudget = clientBuilder().retryPolicy(policy).build();
+        failTimes(1, UNAVAILABLE);
+        clientWithBudget.forSql("SELECT 1").execute(); // takes all tokens, the success returns one of them
+
+        failTimes(1, UNAVAILABLE);
+        assertThatThrownBy(() -> clientWithBudget.forSql("SELECT 1").execute())
+                .isSameAs(UNAVAILABLE);
+        assertThat(policy.getBudgetExhaustedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitForPausedClusterToResume() {
+        val policy = retryPolicy
+                .maxAttempts(1)
+                .resumeTimeout(Duration.ofSeconds(10))
+                .resumeDelay(Duration.ofMillis(1))
+                .build();
+        failTimes(3, RESUMING, LINK_FAILURE, RESUMING);
+
+        clientBuilder().retryPolicy(policy).build()
+                .forSql("INSERT INTO t VALUES (1)").execute();
+
+        assertThat(policy.getResumeWaitCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotRepeatWriteAfterLinkFailureThatMayHaveExecutedIt() {
+        val policy = retryPolicy
+                .resumeTimeout(Duration.ofSeconds(10))
+                .resumeDelay(Duration.ofMillis(1))
+                .build();
+        failTimes(1, LINK_FAILURE);
+
+        assertThatThrownBy(() -> clientBuilder().retryPolicy(policy).build()
+                .forSql("INSERT INTO t VALUES (1)").execute())
+                .isSameAs(LINK_FAILURE);
+        verify(sdkClient, times(1)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldRepeatBeginTransactionAfterLinkFailure() {
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class)))
+                .thenThrow(LINK_FAILURE)
+                .thenReturn(BeginTransactionResponse.builder().transactionId("tx").build());
+
+        assertThat(clientBuilder().retryPolicy(retryPolicy.build()).build().beginTransaction()).isEqualTo("tx");
+    }
+
+    @Test
+    void shouldNotWaitForResumeWhenDisabled() {
+        failTimes(1, LINK_FAILURE);
+
+        assertThatThrownBy(() -> clientBuilder().retryPolicy(retryPolicy.maxAttempts(1).build()).build()
+                .forSql("SELECT 1").execute())
+                .isSameAs(LINK_FAILURE);
+    }
+
+    private void failTimes(int times, RuntimeException... errors) {
+        OngoingStubbing<ExecuteStatementResponse> ongoing = when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(errors[0]);
+        for (int i = 1; i < times; i++) {
+            ongoing = ongoing.thenThrow(errors[Math.min(i, errors.length - 1)]);
+        }
+        ongoing.thenReturn(ExecuteStatementResponse.builder().build());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockColumn;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.longField;
+import static com.amazon.rdsdata.client.testutil.SdkConstructs.stringField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class StatementStatisticsTests extends TestBase {
+    @Test
+    void shouldGroupExecutionsByFingerprint() {
+        mockUsers();
+        val statistics = StatementStatistics.builder().build();
+        val metrics = new HistogramMetricsListener();
+
+        val statsClient = clientBuilder().metricsListener(MetricsListener.of(statistics, metrics)).build();
+        statsClient.forSql("SELECT * FROM users WHERE id = 1").execute().mapToList(User.class);
+        statsClient.forSql("SELECT * FROM users  WHERE id = 2").execute();
+
+        val stats = single(statistics.snapshot());
+        assertThat(stats.getFingerprint()).isEqualTo("SELECT * FROM users WHERE id = ?");
+        assertThat(stats.getCalls()).isEqualTo(2);
+        assertThat(stats.getErrors()).isZero();
+        assertThat(stats.getRows()).isEqualTo(4);
+        assertThat(stats.getBytesIn()).isEqualTo(2 * metrics.getResponseSize().getMax());
+        assertThat(stats.getBytesOut()).isPositive();
+        assertThat(stats.getTotalLatency()).isPositive();
+        assertThat(stats.getP99Latency()).isGreaterThanOrEqualTo(stats.getMeanLatency());
+        assertThat(stats.getMappingTime()).isPositive();
+        assertThat(metrics.getCallLatency(CallMetrics.Operation.EXECUTE_STATEMENT).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountErrors() {
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class)))
+                .thenThrow(BadRequestException.builder().build());
+        val statistics = StatementStatistics.builder().build();
+
+        assertThatThrownBy(() -> clientBuilder().metricsListener(statistics).build()
+                .forSql("DELETE FROM users").execute())
+                .isInstanceOf(BadRequestException.class);
+
+        val stats = single(statistics.snapshot());
+        assertThat(stats.getCalls()).isEqualTo(1);
+        assertThat(stats.getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReturnTopStatements() {
+        mockUsers();
+        val statistics = StatementStatistics.builder().build();
+
+        val statsClient = clientBuilder().metricsListener(statistics).build();
+        execute(statsClient, "SELECT * FROM a", 1);
+        execute(statsClient, "SELECT * FROM b", 3);
+        execute(statsClient, "SELECT * FROM c", 2);
+
+        assertThat(statistics.topN(2, StatementStatistics.SortBy.CALLS))
+                .extracting(StatementStats::getFingerprint)
+                .containsExactly("SELECT * FROM b", "SELECT * FROM c");
+    }
+
+    @Test
+    void shouldEvictStatementWithFewestCalls() {
+        mockUsers();
+        val statistics = StatementStatistics.builder()
+                .maxStatements(2)
+                .build();
+
+        val statsClient = clientBuilder().metricsListener(statistics).build();
+        execute(statsClient, "SELECT * FROM frequent", 3);
+        execute(statsClient, "SELECT * FROM rare", 1);
+        execute(statsClient, "SELECT * FROM recent", 1);
+
+        assertThat(statistics.getStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEvictionCount()).isEqualTo(1);
+        assertThat(statistics.topN(2, StatementStatistics.SortBy.CALLS))
+                .extracting(StatementStats::getFingerprint, StatementStats::getMaxMissedCalls)
+                .containsExactly(tuple("SELECT * FROM frequent", 0L), tuple("SELECT * FROM recent", 1L));
+    }
+
+    @Test
+    void shouldNotTrackStatementAgainWhenEvictedResultIsMapped() {
+        mockUsers();
+        val statistics = StatementStatistics.builder()
+                .maxStatements(2)
+                .build();
+
+        val statsClient = clientBuilder().metricsListener(statistics).build();
+        val rareResult = statsClient.forSql("SELECT * FROM rare").execute();
+        execute(statsClient, "SELECT * FROM frequent", 3);
+        execute(statsClient, "SELECT * FROM recent", 2);
+        rareResult.mapToList(User.class);
+
+        assertThat(statistics.getStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEvictionCount()).isEqualTo(1);
+        assertThat(statistics.snapshot())
+                .extracting(StatementStats::getFingerprint)
+                .containsExactlyInAnyOrder("SELECT * FROM frequent", "SELECT * FROM recent");
+    }
+
+    @Test
+    void shouldDumpTopStatementsToLog() {
+        mockUsers();
+        val statistics = StatementStatistics.builder()
+                .dumpSize(1)
+                .build();
+        execute(clientBuilder().metricsListener(statistics).build(), "SELECT * FROM users", 2);
+        execute(clientBuilder().metricsListener(statistics).build(), "SELECT * FROM roles", 1);
+        val messages = new ArrayList<String>();
+        val handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        val logger = Logger.getLogger(StatementStatistics.class.getName());
+
+        logger.addHandler(handler);
+        try {
+            statistics.dump();
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0))
+                .startsWith("Top statements by TOTAL_LATENCY:")
+                .containsOnlyOnce("SELECT * FROM");
+    }
+
+    private static void execute(RdsData statsClient, String sql, int times) {
+        for (int i = 0; i < times; i++) {
+            statsClient.forSql(sql).execute();
+        }
+    }
+
+    private static StatementStats single(List<StatementStats> stats) {
+        assertThat(stats).hasSize(1);
+        return stats.get(0);
+    }
+
+    private void mockUsers() {
+        mockReturnValues(
+                ImmutableList.of(mockColumn("id", longField(1L)), mockColumn("name", stringField("alice"))),
+                ImmutableList.of(mockColumn("id", longField(2L)), mockColumn("name", stringField("bob"))));
+    }
+
+    @Value
+    private static class User {
+        public final long id;
+        public final String name;
+    }
+}
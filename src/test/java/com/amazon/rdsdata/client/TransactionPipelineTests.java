@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.BeginTransactionResponse;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransactionPipelineTests extends TestBase {
+    private static final BadRequestException ERROR = BadRequestException.builder().message("Duplicate entry").build();
+
+    @BeforeEach
+    void mockStatements() {
+        mockBeginTransaction(sdkClient, "tx");
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            if (invocation.<ExecuteStatementRequest>getArgument(0).sql().contains("fail")) {
+                throw ERROR;
+            }
+            return ExecuteStatementResponse.builder().numberOfRecordsUpdated(1L).build();
+        });
+    }
+
+    @Test
+    void shouldExecuteStatementsInOrderAndCommit() {
+        try (val pipeline = client.beginPipelinedTransaction()) {
+            val first = pipeline.submit("INSERT INTO t VALUES (:a)", singletonMap("a", 1));
+            val second = pipeline.submit("UPDATE t SET a = 2");
+            pipeline.commit().join();
+
+            assertThat(first.join().getNumberOfRecordsUpdated()).isEqualTo(1L);
+            assertThat(second.join().getNumberOfRecordsUpdated()).isEqualTo(1L);
+        }
+
+        val captor = ArgumentCaptor.forClass(ExecuteStatementRequest.class);
+        val inOrder = inOrder(sdkClient);
+        inOrder.verify(sdkClient).beginTransaction(any(BeginTransactionRequest.class));
+        inOrder.verify(sdkClient, times(2)).executeStatement(captor.capture());
+        inOrder.verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+        assertThat(captor.getAllValues()).extracting(ExecuteStatementRequest::sql)
+                .containsExactly("INSERT INTO t VALUES (:a)", "UPDATE t SET a = 2");
+        assertThat(captor.getAllValues()).extracting(ExecuteStatementRequest::transactionId).containsOnly("tx");
+        verify(sdkClient, never()).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldAbortRemainingStatementsAndRollBackOnFailure() {
+        try (val pipeline = client.beginPipelinedTransaction()) {
+            val first = pipeline.submit("INSERT INTO t VALUES (1)");
+            val failed = pipeline.submit("INSERT INTO fail VALUES (2)");
+            val aborted = pipeline.submit("INSERT INTO t VALUES (3)");
+            val commit = pipeline.commit();
+
+            first.join();
+            assertThatThrownBy(failed::join).isInstanceOf(CompletionException.class).hasCauseReference(ERROR);
+            assertThatThrownBy(aborted::join).hasCauseInstanceOf(PipelineAbortedException.class);
+            assertThatThrownBy(commit::join).hasCauseInstanceOf(PipelineAbortedException.class);
+        }
+
+        verify(sdkClient, times(2)).executeStatement(any(ExecuteStatementRequest.class));
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        verify(sdkClient, never()).commitTransaction(any(CommitTransactionRequest.class));
+    }
+
+    @Test
+    void shouldAbortWhenStatementIsCancelledBeforeItIsSent() throws Exception {
+        val begin = new CountDownLatch(1);
+        when(sdkClient.beginTransaction(any(BeginTransactionRequest.class))).thenAnswer(invocation -> {
+            begin.await();
+            return BeginTransactionResponse.builder().transactionId("tx").build();
+        });
+
+        try (val pipeline = client.beginPipelinedTransaction()) {
+            pipeline.submit("INSERT INTO t VALUES (1)").cancel(false);
+            val next = pipeline.submit("INSERT INTO t VALUES (2)");
+            begin.countDown();
+
+            assertThatThrownBy(next::join).hasCauseInstanceOf(PipelineAbortedException.class);
+        }
+
+        verify(sdkClient, never()).executeStatement(any(ExecuteStatementRequest.class));
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRollBackWhenClosedWithoutCommit() {
+        try (val pipeline = client.beginPipelinedTransaction()) {
+            pipeline.submit("INSERT INTO t VALUES (1)");
+        }
+
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldRollBackAbortedPipelineWithoutClose() {
+        val pipeline = client.beginPipelinedTransaction();
+        pipeline.submit("INSERT INTO fail VALUES (1)");
+
+        assertThatThrownBy(pipeline.commit()::join).hasCauseInstanceOf(PipelineAbortedException.class);
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+    }
+
+    @Test
+    void shouldInvalidateCachedResultsWithTaggedWrites() {
+        val cache = ResultCache.builder().defaultTtl(Duration.ofMinutes(1)).build();
+        val cachingClient = clientBuilder().resultCache(cache).build();
+
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute();
+        try (val pipeline = cachingClient.beginPipelinedTransaction().withTableTags("users")) {
+            pipeline.submit("UPDATE users SET name = 'bob'");
+            pipeline.commit().join();
+        }
+        cachingClient.forSql("SELECT name FROM users").withTableTags("users").execute();
+
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void shouldRejectStatementsAfterCommit() {
+        try (val pipeline = client.beginPipelinedTransaction()) {
+            pipeline.commit();
+
+            assertThatThrownBy(() -> pipeline.submit("SELECT 1"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage(TransactionPipeline.ERROR_FINISHED);
+        }
+    }
+}
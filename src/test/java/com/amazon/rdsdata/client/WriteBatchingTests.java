@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rdsdata.model.BadRequestException;
+import software.amazon.awssdk.services.rdsdata.model.BatchExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.BatchExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.CommitTransactionRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.amazon.rdsdata.client.testutil.MockingTools.mockBeginTransaction;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteBatchingTests extends TestBase {
+    private static final String INSERT = "INSERT INTO t (a) VALUES (:a)";
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+    @AfterEach
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @BeforeEach
+    void mockTransactions() {
+        mockBeginTransaction(sdkClient, "tx");
+    }
+
+    @Test
+    void shouldMergeConcurrentWritesIntoBatch() throws Exception {
+        val batcher = WriteBatcher.builder()
+                .maxBatchSize(3)
+                .maxDelay(Duration.ofSeconds(10))
+                .build();
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+
+        val writes = new ArrayList<Future<ExecutionResult>>();
+        for (int i = 0; i < 3; i++) {
+            val value = i;
+            writes.add(executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", value).execute()));
+        }
+        for (val write : writes) {
+            assertThat(write.get(5, TimeUnit.SECONDS).getNumberOfRecordsUpdated()).isNull();
+        }
+
+        val batchRequest = captureBatchRequest();
+        assertThat(batchRequest.parameterSets()).hasSize(3);
+        assertThat(batchRequest.transactionId()).isEqualTo("tx");
+        verify(sdkClient).commitTransaction(any(CommitTransactionRequest.class));
+        verify(sdkClient, never()).executeStatement(any(ExecuteStatementRequest.class));
+        assertThat(batcher.getBatchCount()).isEqualTo(1);
+        assertThat(batcher.getBatchedRowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldBatchWritesWithDifferentDeadlinesUntilEarliestDeadline() throws Exception {
+        val batcher = WriteBatcher.builder()
+                .maxBatchSize(2)
+                .maxDelay(Duration.ofSeconds(10))
+                .build();
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+
+        val first = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 1)
+                .withDeadline(Duration.ofSeconds(30)).execute());
+        val second = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 2)
+                .withDeadline(Duration.ofSeconds(60)).execute());
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertThat(batcher.getBatchCount()).isEqualTo(1);
+        val apiCallTimeout = captureBatchRequest().overrideConfiguration().get().apiCallTimeout().get();
+        assertThat(apiCallTimeout).isLessThanOrEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldBatchWritesWithLeadingComments() throws Exception {
+        val batcher = WriteBatcher.builder()
+                .maxBatchSize(2)
+                .maxDelay(Duration.ofSeconds(10))
+                .build();
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+
+        val sql = "/* import */ -- rows\n" + INSERT;
+        val first = executorService.submit(() -> batchingClient.forSql(sql).withParameter("a", 1).execute());
+        val second = executorService.submit(() -> batchingClient.forSql(sql).withParameter("a", 2).execute());
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertThat(batcher.getBatchedRowCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSendSingleWriteAsRegularStatement() {
+        val batcher = WriteBatcher.builder()
+                .maxDelay(Duration.ofMillis(1))
+                .build();
+        mockReturnValue(1L);
+
+        val result = clientBuilder().writeBatcher(batcher).build()
+                .forSql(INSERT).withParameter("a", 1).execute();
+
+        assertThat(result.getNumberOfRecordsUpdated()).isEqualTo(1L);
+        assertThat(batcher.getBatchCount()).isZero();
+    }
+
+    @Test
+    void shouldSendWritesOfFailedBatchOneByOne() throws Exception {
+        val batcher = WriteBatcher.builder()
+                .maxBatchSize(2)
+                .maxDelay(Duration.ofSeconds(10))
+                .build();
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        val error = BadRequestException.builder().message("Duplicate entry").build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class))).thenThrow(error);
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenAnswer(invocation -> {
+            val value = invocation.<ExecuteStatementRequest>getArgument(0).parameters().get(0).value().longValue();
+            if (value == 2L) {
+                throw error;
+            }
+            return ExecuteStatementResponse.builder().numberOfRecordsUpdated(1L).build();
+        });
+
+        val first = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 1).execute());
+        val second = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 2).execute());
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getNumberOfRecordsUpdated()).isEqualTo(1L);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseReference(error);
+        verify(sdkClient).rollbackTransaction(any(RollbackTransactionRequest.class));
+        verify(sdkClient, never()).commitTransaction(any(CommitTransactionRequest.class));
+        assertThat(batcher.getFailedBatchCount()).isEqualTo(1);
+        assertThat(batcher.getBatchedRowCount()).isZero();
+    }
+
+    @Test
+    void shouldFailEveryWriteWhenFailedBatchCannotBeRolledBack() throws Exception {
+        val batcher = WriteBatcher.builder()
+                .maxBatchSize(2)
+                .maxDelay(Duration.ofSeconds(10))
+                .build();
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        val error = BadRequestException.builder().message("Duplicate entry").build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class))).thenThrow(error);
+        when(sdkClient.rollbackTransaction(any(RollbackTransactionRequest.class)))
+                .thenThrow(BadRequestException.builder().message("Communications link failure").build());
+
+        val first = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 1).execute());
+        val second = executorService.submit(() -> batchingClient.forSql(INSERT).withParameter("a", 2).execute());
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseReference(error);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseReference(error);
+        verify(sdkClient, never()).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldOnlyBatchInsertsOutsideOfTransactions() {
+        val batcher = WriteBatcher.builder()
+                .maxDelay(Duration.ofMillis(1))
+                .build();
+        mockReturnValue();
+
+        val batchingClient = clientBuilder().writeBatcher(batcher).build();
+        batchingClient.forSql("SELECT a FROM t WHERE a = :a").withParameter("a", 1).execute();
+        batchingClient.forSql(INSERT).withParameter("a", 1).withTransactionId("tx").execute();
+        batchingClient.forSql(INSERT + " RETURNING id").withParameter("a", 1).execute();
+        batchingClient.forSql("UPDATE t SET a = :a WHERE version = 1").withParameter("a", 1).execute();
+
+        verify(sdkClient, times(4)).executeStatement(any(ExecuteStatementRequest.class));
+        assertThat(batcher.getBatchedRowCount()).isZero();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.rdsdata.client;
+
+import com.amazon.rdsdata.client.testutil.SdkConstructs;
+import com.amazon.rdsdata.client.testutil.TestBase;
+import lombok.Value;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.rdsdata.model.BatchExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.BatchExecuteStatementResponse;
+import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.rdsdata.model.ServiceUnavailableErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteBehindTests extends TestBase {
+    private static final String SQL = "UPDATE counters SET value = value + :delta WHERE id = :id";
+
+    @Test
+    void shouldKeepLastWriteOfKeyAndFlushOnClose() {
+        mockBatch();
+        val writer = writer();
+
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(2, 20));
+        writer.write(new Counter(1, 30));
+        writer.close();
+
+        val parameterSets = captureBatchRequest().parameterSets();
+        assertThat(parameterSets).hasSize(2);
+        assertThat(parameterSets.get(0)).contains(SdkConstructs.parameter("delta", SdkConstructs.longField(30)));
+        assertThat(writer.getWriteCount()).isEqualTo(3);
+        assertThat(writer.getFlushedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCombineWritesWithMergeFunction() {
+        mockReturnValue();
+        val writer = writer().withMergeFunction((older, newer) -> new Counter(older.id, older.delta + newer.delta));
+
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(1, 5));
+        writer.flush();
+
+        assertThat(captureRequest().parameters()).contains(SdkConstructs.parameter("delta", SdkConstructs.longField(15)));
+        assertThat(writer.getBufferedKeyCount()).isZero();
+    }
+
+    @Test
+    void shouldFlushWhenBufferReachesFlushSize() {
+        mockBatch();
+        val writer = writer().withFlushSize(2);
+
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(2, 20));
+
+        verify(sdkClient, timeout(5000)).batchExecuteStatement(any(BatchExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldFlushWhenWriteIsOlderThanMaxAge() {
+        mockReturnValue();
+        val writer = writer().withMaxAge(Duration.ofMillis(1));
+
+        writer.write(new Counter(1, 10));
+
+        verify(sdkClient, timeout(5000)).executeStatement(any(ExecuteStatementRequest.class));
+    }
+
+    @Test
+    void shouldWaitForFlushWhenBufferIsFull() {
+        mockReturnValue();
+        val writer = writer().withMaxBufferedKeys(1);
+
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(2, 20)); // waits until the first key is taken out of the buffer
+
+        verify(sdkClient, timeout(5000)).executeStatement(any(ExecuteStatementRequest.class));
+        assertThat(writer.getBufferedKeyCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepWritesOfFailedFlush() {
+        val error = ServiceUnavailableErrorException.builder().build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenThrow(error)
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+        val writer = writer();
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(2, 20));
+
+        assertThatThrownBy(writer::flush).isSameAs(error);
+        assertThat(writer.getBufferedKeyCount()).isEqualTo(2);
+        assertThat(writer.getFailedFlushCount()).isEqualTo(1);
+
+        writer.flush();
+        assertThat(writer.getFlushedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRetryFailedWritesWithoutMergingThemIntoNewerWrites() {
+        val error = ServiceUnavailableErrorException.builder().build();
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenThrow(error)
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+        val writer = writer().withMergeFunction((older, newer) -> new Counter(older.id, older.delta + newer.delta));
+        writer.write(new Counter(1, 10));
+        writer.write(new Counter(2, 20));
+        assertThatThrownBy(writer::flush).isSameAs(error);
+
+        writer.write(new Counter(1, 5));
+        writer.flush();
+
+        val requests = ArgumentCaptor.forClass(BatchExecuteStatementRequest.class);
+        verify(sdkClient, times(2)).batchExecuteStatement(requests.capture());
+        val parameterSets = requests.getAllValues().get(1).parameterSets();
+        assertThat(parameterSets).hasSize(3);
+        assertThat(parameterSets.get(0)).contains(SdkConstructs.parameter("delta", SdkConstructs.longField(10)));
+        assertThat(parameterSets.get(2)).contains(SdkConstructs.parameter("delta", SdkConstructs.longField(5)));
+    }
+
+    @Test
+    void shouldCountFailedWritesAgainstBufferLimit() {
+        val error = ServiceUnavailableErrorException.builder().build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenThrow(error);
+        val writer = writer().withMaxBufferedKeys(1);
+        writer.write(new Counter(1, 10));
+        assertThatThrownBy(writer::flush).isSameAs(error);
+
+        val blocked = new Thread(() -> writer.write(new Counter(2, 20)));
+        blocked.start();
+        awaitUntil(() -> blocked.getState() == Thread.State.WAITING);
+
+        assertThat(writer.getBufferedKeyCount()).isEqualTo(1);
+        blocked.interrupt();
+    }
+
+    @Test
+    void shouldRejectWaitingWritesWhenClosed() throws InterruptedException {
+        val error = ServiceUnavailableErrorException.builder().build();
+        when(sdkClient.executeStatement(any(ExecuteStatementRequest.class))).thenThrow(error);
+        val writer = writer().withMaxBufferedKeys(1).withErrorHandler(e -> { });
+        writer.write(new Counter(1, 10));
+        assertThatThrownBy(writer::flush).isSameAs(error);
+
+        val rejection = new AtomicReference<Throwable>();
+        val blocked = new Thread(() -> {
+            try {
+                writer.write(new Counter(2, 20));
+            } catch (RuntimeException e) {
+                rejection.set(e);
+            }
+        });
+        blocked.start();
+        awaitUntil(() -> blocked.getState() == Thread.State.WAITING);
+        assertThatThrownBy(writer::close).isSameAs(error);
+        blocked.join();
+
+        assertThat(rejection.get())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(WriteBehindWriter.ERROR_CLOSED);
+        assertThatThrownBy(writer::flush)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(WriteBehindWriter.ERROR_CLOSED);
+    }
+
+    @Test
+    void shouldRejectWritesAfterClose() {
+        val writer = writer();
+        writer.close();
+
+        assertThatThrownBy(() -> writer.write(new Counter(1, 10)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(WriteBehindWriter.ERROR_CLOSED);
+    }
+
+    private WriteBehindWriter<Long, Counter> writer() {
+        return client.<Long, Counter>forWriteBehind(SQL, counter -> counter.id)
+                .withMaxAge(Duration.ofMinutes(1));
+    }
+
+    private void mockBatch() {
+        when(sdkClient.batchExecuteStatement(any(BatchExecuteStatementRequest.class)))
+                .thenReturn(BatchExecuteStatementResponse.builder().build());
+    }
+
+    @Value
+    private static class Counter {
+        public final long id;
+        public final long delta;
+    }
+}
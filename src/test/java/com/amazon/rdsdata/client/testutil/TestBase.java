@@ -26,6 +26,7 @@ import software.amazon.awssdk.services.rdsdata.model.ExecuteStatementRequest;
 import software.amazon.awssdk.services.rdsdata.model.RollbackTransactionRequest;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -40,12 +41,23 @@ public class TestBase {
 
     @BeforeEach
     void createClient() {
-        client = RdsData.builder()
+        client = clientBuilder().build();
+    }
+
+    // a client for the mocked SDK client, to which tests add the components they exercise
+    protected RdsData.RdsDataBuilder clientBuilder() {
+        return RdsData.builder()
                 .sdkClient(sdkClient)
                 .database(SAMPLE_DB)
                 .resourceArn(SAMPLE_RESOURCE_ARN)
-                .secretArn(SAMPLE_SECRET_ARN)
-                .build();
+                .secretArn(SAMPLE_SECRET_ARN);
+    }
+
+    // waits for state that other threads change without signalling it, such as the length of a queue
+    protected static void awaitUntil(BooleanSupplier condition) {
+        while (!condition.getAsBoolean()) {
+            Thread.yield();
+        }
     }
 
     protected void mockReturnValue(MockingTools.ColumnDefinition... columns) {